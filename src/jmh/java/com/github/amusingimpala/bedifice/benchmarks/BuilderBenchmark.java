@@ -0,0 +1,105 @@
+package com.github.amusingimpala.bedifice.benchmarks;
+
+import com.github.amusingimpala.bedifice.api.Bedifice;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeBuilder;
+import com.github.amusingimpala.bedifice.api.builders.skins.SkinBuilder;
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import com.google.gson.JsonObject;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON builders at the scale of large generated packs
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuilderBenchmark {
+
+    @Param({"10000"})
+    public int skins;
+
+    @Param({"1000"})
+    public int modules;
+
+    private ManifestBuilder manifest;
+    private SkinBuilder skinBuilder;
+
+    @Setup
+    public void setup() {
+        this.manifest = deepManifest(modules);
+        this.skinBuilder = skins(skins);
+    }
+
+    @Benchmark
+    public JsonObject manifestBuild() {
+        return manifest.build();
+    }
+
+    @Benchmark
+    public void manifestWrite() throws IOException {
+        manifest.write(NullOutputStream.NULL_OUTPUT_STREAM, Bedifice.noWhiteSpace);
+    }
+
+    @Benchmark
+    public SkinBuilder skinAdd() {
+        return skins(skins);
+    }
+
+    @Benchmark
+    public JsonObject skinBuild() {
+        return skinBuilder.build();
+    }
+
+    @Benchmark
+    public void skinWrite() throws IOException {
+        skinBuilder.write(NullOutputStream.NULL_OUTPUT_STREAM, Bedifice.noWhiteSpace);
+    }
+
+    @Benchmark
+    public void recipeBuild(Blackhole blackhole) {
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            blackhole.consume(new RecipeBuilder()
+                    .data(RecipeBuilder.RecipeType.RECIPE_SHAPED, Identifier.of("bench", "recipe_" + n), data -> data
+                            .tags("crafting_table")
+                            .priority(n % 4)
+                            .pattern("##", "# ")
+                            .key('#', ItemStack.of(Identifier.of("minecraft", "stick")))
+                            .result(ItemStack.of(Identifier.of("bench", "item_" + (n % 64)), 4)))
+                    .build());
+        }
+    }
+
+    static ManifestBuilder deepManifest(int modules) {
+        ManifestBuilder manifest = new ManifestBuilder()
+                .header("Benchmark Pack", new Vector3(1, 0, 0), head -> head
+                        .uuid("b3cb6267-9d55-4d2c-a10c-76121f5db096")
+                        .description("A pack for benchmarking")
+                        .minEngineVersion(new Vector3(1, 17, 0)))
+                .metadata(meta -> meta.authors("bench", "mark").url("https://example.com"));
+        for (int i = 0; i < modules; i++) {
+            manifest.module(ManifestBuilder.ModuleType.RESOURCES, new Vector3(1, 0, i), "module-" + i);
+            manifest.dependency("dependency-" + i, new Vector3(1, 0, i));
+        }
+        return manifest;
+    }
+
+    static SkinBuilder skins(int count) {
+        SkinBuilder builder = new SkinBuilder("benchmark_pack");
+        for (int i = 0; i < count; i++) {
+            builder.skin("skin_" + i, "skin_" + i + ".png", i % 2 == 0 ? "free" : "paid");
+        }
+        return builder;
+    }
+}
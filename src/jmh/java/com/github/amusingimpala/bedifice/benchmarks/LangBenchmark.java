@@ -0,0 +1,48 @@
+package com.github.amusingimpala.bedifice.benchmarks;
+
+import com.github.amusingimpala.bedifice.api.builders.LangBuilder;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks assembling very large locales
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LangBenchmark {
+
+    @Param({"100000"})
+    public int keys;
+
+    private LangBuilder lang;
+
+    @Setup
+    public void setup() {
+        this.lang = locale("en_US", keys);
+    }
+
+    @Benchmark
+    public String assemble() {
+        return lang.assemble();
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        lang.write(NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    static LangBuilder locale(String locale, int keys) {
+        LangBuilder lang = new LangBuilder(locale);
+        for (int i = 0; i < keys; i++) {
+            lang.translation("item.benchmark.entry_" + i + ".name", "Benchmark Entry Number " + i);
+        }
+        return lang;
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.amusingimpala.bedifice.benchmarks;
+
+import com.github.amusingimpala.bedifice.api.Bedifice;
+import com.github.amusingimpala.bedifice.api.BedificeSkinPack;
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full save of a large skin pack, run from the project directory so src/resources can be included
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveBenchmark {
+
+    private static final String PACK_NAME = "jmh_benchmark_pack";
+
+    @Param({"true", "false"})
+    public boolean prettyPrint;
+
+    @Param({"10000"})
+    public int skins;
+
+    @Param({"100000"})
+    public int keys;
+
+    private BedificeSkinPack pack;
+
+    @Setup
+    public void setup() {
+        this.pack = Bedifice.createSkinPack(PACK_NAME, pack -> pack
+                .include("lotr_skin_pack")
+                .manifest(man -> man
+                        .header("Benchmark Pack", new Vector3(1, 0, 0), head -> head
+                                .uuid("b3cb6267-9d55-4d2c-a10c-76121f5db096"))
+                        .module(ManifestBuilder.ModuleType.SKIN_PACK, new Vector3(1, 0, 0), "70e9e379-4a18-4c79-b3d0-cd4b394232ed")
+                )
+                .skins(skin -> {
+                    for (int i = 0; i < skins; i++) skin.skin("skin_" + i, i % 2 == 0 ? "frodo.png" : "legolas.png");
+                })
+                .translations("en_US", lang -> {
+                    for (int i = 0; i < keys; i++) lang.translation("skin." + PACK_NAME + ".skin_" + i, "Skin " + i);
+                })
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(Paths.get("out", "packs", PACK_NAME).toFile());
+    }
+
+    @Benchmark
+    public SaveResult save() {
+        return pack.save(prettyPrint);
+    }
+}
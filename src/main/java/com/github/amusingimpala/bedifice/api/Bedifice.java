@@ -1,13 +1,25 @@
 package com.github.amusingimpala.bedifice.api;
 
 import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.impl.PackImporter;
+import com.github.amusingimpala.bedifice.impl.output.FileTransfer;
+import com.github.amusingimpala.bedifice.impl.output.ZipOutput;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipOutputStream;
+
 /**
  * Main class for constructing Minecraft Bedrock Edition Addons, Resource Packs, and Skin Packs
  * */
-//Todo programmatically generated textures
 public class Bedifice {
 
     public static Gson prettyPrint = (new GsonBuilder()).setPrettyPrinting().create();
@@ -23,4 +35,161 @@ public class Bedifice {
     public static BedificeSkinPack createSkinPack(String packName, Processor<BedificeSkinPack> proc) {
         return proc.process(new BedificeSkinPack(packName));
     }
+
+    /**
+     * Creates a BehaviourPack given a name and processor
+     *
+     * @param proc the processor to add things to the pack
+     * @param packName the name of the pack
+     * @return the constructed behaviour pack
+     * */
+    public static BedificeBehvaiourPack createBehaviourPack(String packName, Processor<BedificeBehvaiourPack> proc) {
+        return proc.process(new BedificeBehvaiourPack(packName));
+    }
+
+    /**
+     * Creates a ResourcePack given a name and processor
+     *
+     * @param proc the processor to add things to the pack
+     * @param packName the name of the pack
+     * @return the constructed resource pack
+     * */
+    public static BedificeResourcePack createResourcePack(String packName, Processor<BedificeResourcePack> proc) {
+        return proc.process(new BedificeResourcePack(packName));
+    }
+
+    /**
+     * Imports an existing pack, so it can be saved by bEdifice.
+     * Its manifest.json, skins.json and .lang files are read into builders, and its other files are included from
+     * where they are, inside the archive if it is one, without being copied. Archives stay open until {@link #closeImports()}
+     *
+     * @param pack the pack's folder, or its .mcpack or .zip archive
+     * @return the imported pack, a skin, resource or behaviour pack depending on its modules
+     * */
+    public static BedificePack<?> importPack(Path pack) {
+        try {
+            return PackImporter.read(pack);
+        } catch (IOException e) {
+            System.out.println("Error importing pack " + pack + "!");
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Imports every pack in a folder, whether a folder or a .mcpack or .zip archive, in parallel.
+     * Packs that fail to import are reported and left out
+     *
+     * @param folder the folder containing the packs
+     * @return the imported packs, sorted by the name of their folder or archive
+     * */
+    public static List<BedificePack<?>> importPacks(Path folder) {
+        List<Path> packs;
+        try (Stream<Path> list = Files.list(folder)) {
+            packs = list.filter(PackImporter::isPack).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            System.out.println("Error listing packs in " + folder + "!");
+            throw new UncheckedIOException(e);
+        }
+
+        return packs.parallelStream().map(pack -> {
+            try {
+                return Optional.<BedificePack<?>>of(PackImporter.read(pack));
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error importing pack " + pack + "!");
+                e.printStackTrace();
+                return Optional.<BedificePack<?>>empty();
+            }
+        }).flatMap(Optional::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * Closes the .mcpack and .zip archives opened by {@link #importPack(Path)} and {@link #importPacks(Path)}.
+     * They are kept open so the imported packs can read their files when saved, so call this once those packs are saved
+     * */
+    public static void closeImports() {
+        PackImporter.close();
+    }
+
+    /**
+     * Creates a Workspace, for saving many packs together
+     *
+     * @param proc the processor to add packs to the workspace
+     * @return the constructed workspace
+     * */
+    public static BedificeWorkspace createWorkspace(Processor<BedificeWorkspace> proc) {
+        return proc.process(new BedificeWorkspace());
+    }
+
+    /**
+     * Saves all the packs at the same time, pretty printed
+     *
+     * @param packs the packs to save
+     * @return the aggregate result of the build
+     * */
+    public static BuildResult buildAll(BedificePack<?>... packs) {
+        return buildAll(true, packs);
+    }
+
+    /**
+     * Saves all the packs at the same time
+     *
+     * @param prettyPrint whether to pretty print or not
+     * @param packs the packs to save
+     * @return the aggregate result of the build
+     * */
+    public static BuildResult buildAll(boolean prettyPrint, BedificePack<?>... packs) {
+        return new BedificeWorkspace().pack(packs).save(prettyPrint);
+    }
+
+    /**
+     * Saves several packs into a single .mcaddon archive at out/addons/[addon_name].mcaddon, each pack in its own folder.
+     * Packs sharing a name, such as the resource and behaviour packs of an addon, get folders told apart by their type
+     *
+     * @param addonName the name of the archive, without the extension
+     * @param prettyPrint whether to pretty print or not
+     * @param packs the packs to save into the archive
+     * @return the aggregate result of the build
+     * */
+    public static BuildResult saveAddon(String addonName, boolean prettyPrint, BedificePack<?>... packs) {
+        Path archive = Paths.get("out", "addons", addonName + ".mcaddon");
+
+        String[] folders = BedificeWorkspace.folders(Arrays.asList(packs));
+        List<SaveResult> saved = new ArrayList<>();
+        Map<BedificePack<?>, Throwable> failures = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(archive.getParent());
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+                for (int i = 0; i < packs.length; i++) {
+                    BedificePack<?> pack = packs[i];
+                    try {
+                        saved.add(pack.saveInto(new ZipOutput(archive, zip, folders[i]), prettyPrint));
+                    } catch (RuntimeException e) {
+                        System.out.println("Error saving pack " + pack.getPackName() + " into " + archive + "!");
+                        e.printStackTrace();
+                        failures.put(pack, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error creating addon archive " + archive + "!");
+            throw new UncheckedIOException(e);
+        }
+
+        return new BuildResult(Collections.unmodifiableList(saved), Collections.unmodifiableMap(failures));
+    }
+
+    /**
+     * Deletes files from the shared store at out/.store that no pack output links to anymore,
+     * such as after packs saved with {@link BedificePack.IncludeStrategy#STORE} were deleted or changed
+     *
+     * @return the number of files deleted
+     * */
+    public static int pruneStore() {
+        try {
+            return FileTransfer.pruneStore();
+        } catch (IOException e) {
+            System.out.println("Error pruning store " + FileTransfer.STORE + "!");
+            throw new UncheckedIOException(e);
+        }
+    }
 }
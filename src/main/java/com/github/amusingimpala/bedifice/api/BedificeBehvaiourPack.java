@@ -1,11 +1,23 @@
 package com.github.amusingimpala.bedifice.api;
 
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeBuilder;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeReport;
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.impl.RecipeIndex;
+import com.github.amusingimpala.bedifice.impl.output.PackOutput;
 import com.google.gson.Gson;
 
-import java.nio.file.Path;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
 
 public class BedificeBehvaiourPack extends BedificePack<BedificeBehvaiourPack> {
 
+    private final List<RecipeBuilder> recipes = new ArrayList<>();
+    private final Set<Identifier> recipeIds = new HashSet<>();
+
     /**
      * Constructs a BedificeBehaviourPack
      *
@@ -15,8 +27,102 @@ public class BedificeBehvaiourPack extends BedificePack<BedificeBehvaiourPack> {
         super(name);
     }
 
+    /**
+     * Adds a recipe to the pack, saved to recipes/[namespace]/[path].json
+     *
+     * @param type the type of the recipe
+     * @param id the identifier of the recipe, which no other recipe in the pack may have
+     * @param dataProc Processor to add the recipe's items
+     * @return the current BedificeBehaviourPack (this)
+     */
+    public BedificeBehvaiourPack recipe(RecipeBuilder.RecipeType type, Identifier id, Processor<RecipeBuilder.RecipeDataBuilder> dataProc) {
+        if (this.defer(() -> this.recipe(type, id, dataProc))) return this;
+        return this.add(new RecipeBuilder().data(type, id, dataProc));
+    }
+
+    /**
+     * Adds a recipe to the pack, saved to recipes/[namespace]/[path].json
+     *
+     * @param recipeProc Processor to set the recipe's format version and data. Its identifier may not be used by
+     *                   another recipe in the pack
+     * @return the current BedificeBehaviourPack (this)
+     */
+    public BedificeBehvaiourPack recipe(Processor<RecipeBuilder> recipeProc) {
+        if (this.defer(() -> this.recipe(recipeProc))) return this;
+        return this.add(recipeProc.process(new RecipeBuilder()));
+    }
+
+    /**
+     * Adds a recipe, unless another recipe has its identifier, as both would be saved to the same file
+     * */
+    private BedificeBehvaiourPack add(RecipeBuilder recipe) {
+        Identifier id = recipe.getIdentifier();
+        if (!this.recipeIds.add(id)) {
+            throw new IllegalArgumentException("Duplicate recipe " + id + " in behaviour pack " + getPackName() + "!");
+        }
+        this.recipes.add(recipe);
+        return this;
+    }
+
+    /**
+     * Returns the recipes in the pack. The recipes of a lazy pack are built for the call, and released after
+     *
+     * @return a copy of the recipes, in the order they were added
+     */
+    public List<RecipeBuilder> getRecipes() {
+        return this.materialized(() -> List.copyOf(this.recipes));
+    }
+
+    /**
+     * Checks the recipes for recipes made from the same ingredients in the same place, which shadow each other in game.
+     * Duplicate identifiers are already rejected when recipes are added. Runs in about linear time, so is also run on every save
+     *
+     * @return the problems found
+     */
+    public RecipeReport checkRecipes() {
+        return this.materialized(() -> RecipeIndex.index(this.recipes));
+    }
+
+    /**
+     * Releases the recipes built for a lazy save
+     * */
+    @Override
+    protected void release() {
+        super.release();
+        this.recipes.clear();
+        this.recipeIds.clear();
+    }
+
+    @Override
+    protected boolean fingerprint(OutputStream out, Gson gson) throws IOException {
+        for (RecipeBuilder recipe : recipes) {
+            recipe.write(out, gson);
+        }
+        return true;
+    }
+
+    /**
+     * Saves the recipes, serializing them in parallel and streaming each to its own file.
+     * Ambiguous recipes are reported, but still saved
+     *
+     * @param output the output to save files to
+     * @param gson the correctly configured Gson for serialization
+     */
     @Override
-    protected void onSave(Path outputFolder, Gson gson) {
+    protected void onSave(PackOutput output, Gson gson) {
+        RecipeReport report = this.checkRecipes();
+        if (!report.isClean()) {
+            System.out.print("Recipe problems in behaviour pack " + getPackName() + ":\n" + report.format());
+        }
 
+        recipes.parallelStream().forEach(recipe -> {
+            Identifier id = recipe.getIdentifier();
+            try {
+                output.write("recipes/" + id.namespace() + "/" + id.path() + ".json", out -> recipe.write(out, gson));
+            } catch (IOException e) {
+                System.out.println("Error saving recipe " + id + "!");
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 }
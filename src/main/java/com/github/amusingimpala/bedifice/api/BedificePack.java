@@ -1,19 +1,41 @@
 package com.github.amusingimpala.bedifice.api;
 
 import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.builders.texture.TextureBuilder;
 import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.api.util.Texture;
+import com.github.amusingimpala.bedifice.impl.BuildCache;
+import com.github.amusingimpala.bedifice.impl.Hashing;
+import com.github.amusingimpala.bedifice.impl.output.DirectoryOutput;
+import com.github.amusingimpala.bedifice.impl.output.FileTransfer;
+import com.github.amusingimpala.bedifice.impl.output.IncrementalOutput;
+import com.github.amusingimpala.bedifice.impl.output.Ledger;
+import com.github.amusingimpala.bedifice.impl.output.PackOutput;
+import com.github.amusingimpala.bedifice.impl.output.SaveMonitor;
+import com.github.amusingimpala.bedifice.impl.output.ZipOutput;
+import com.github.amusingimpala.bedifice.impl.texture.TextureOptimizer;
+import com.github.amusingimpala.bedifice.impl.texture.TextureScaler;
 import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import org.apache.commons.io.FileUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.MissingFormatArgumentException;
-import java.util.Optional;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A pack, whether it be a SkinPack, ResourcePack, or Behaviour pack extends from this
@@ -23,9 +45,36 @@ import java.util.Optional;
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public abstract class BedificePack<T> {
 
+    /** Runs asynchronous saves and the background writes of every pack, which are limited per pack */
+    private static final ExecutorService IO = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "bEdifice-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final String name;
-    private final List<String> includes = new ArrayList<>();
-    private Optional<JsonObject> manifest = Optional.empty();
+    /** Where included resources are read from, unless included from elsewhere */
+    private static final Path RESOURCES = Paths.get("src", "resources");
+
+    private final List<Path> includes = new ArrayList<>();
+    private final Set<String> excluded = new HashSet<>();
+    private final Map<String, TextureBuilder> textures = new LinkedHashMap<>();
+    private final List<SaveListener> listeners = new ArrayList<>();
+    private final Map<String, Integer> downscaled = new LinkedHashMap<>();
+    private Optional<ManifestBuilder> manifest = Optional.empty();
+    private Processor<ManifestBuilder> lazyManifest = null;
+    private final List<Runnable> deferred = new ArrayList<>();
+    private boolean lazy = false;
+    private boolean defined = false;
+    private boolean materializing = false;
+    private int saving = 0;
+    private boolean incremental = false;
+    private IncludeStrategy includeStrategy = IncludeStrategy.COPY;
+    private boolean optimizeTextures = false;
+    private boolean cached = false;
+    private int concurrentWrites = 8;
+    /** The folder or archive name of the last save, for updates to save to the same place */
+    private volatile LastSave lastSave = null;
 
     /**
      * Constructs a pack
@@ -45,6 +94,17 @@ public abstract class BedificePack<T> {
         return this.name;
     }
 
+    /**
+     * Returns the pack's manifest
+     *
+     * @return the manifest of the pack, if set
+     * */
+    public Optional<ManifestBuilder> getManifest() {
+        //lazy manifests are small, so are built again rather than kept
+        if (this.manifest.isEmpty() && this.lazyManifest != null) return Optional.of(this.lazyManifest.process(new ManifestBuilder()));
+        return this.manifest;
+    }
+
     /**
      * Adds / sets the manifest for the pack
      *
@@ -52,7 +112,25 @@ public abstract class BedificePack<T> {
      * @return the current pack (this)
      * */
     public T manifest(Processor<ManifestBuilder> manProc) {
-        this.manifest = Optional.of(manProc.process(new ManifestBuilder()).build());
+        if (this.defer(() -> this.manifest(manProc))) {
+            this.lazyManifest = manProc;
+            return (T) this;
+        }
+        this.manifest = Optional.of(manProc.process(new ManifestBuilder()));
+        return (T) this;
+    }
+
+    /**
+     * Makes the pack lazy: the processors of its manifest, generated textures and the child class's contents, such as
+     * skins and translations, are only kept, and are run right before each save, with what they built released after it.
+     * Defining many packs up front then only holds the contents of the packs being saved at the time.
+     * Must be called before defining the pack's contents
+     *
+     * @return the current Pack (this)
+     * */
+    public T lazy() {
+        if (this.defined) throw new IllegalStateException("Pack " + getPackName() + " must be made lazy before defining its contents!");
+        this.lazy = true;
         return (T) this;
     }
 
@@ -63,24 +141,184 @@ public abstract class BedificePack<T> {
      * @return the current Pack (this)
      * */
     public T include(String resourcePath) {
-        this.includes.add(resourcePath);
+        this.includes.add(RESOURCES.resolve(resourcePath));
+        return (T) this;
+    }
+
+    /**
+     * Includes a folder's contents from anywhere into the pack, such as an existing pack's folder, or a folder in a
+     * zip file system. Files are read in place when saving, and only src/resources is watched for changes
+     *
+     * @param folder the folder to include the contents of
+     * @return the current Pack (this)
+     * */
+    public T include(Path folder) {
+        this.includes.add(folder);
+        return (T) this;
+    }
+
+    /**
+     * Leaves an included file out of the pack, such as one the pack generates instead
+     *
+     * @param path path of the file in the pack, '/' separated
+     * @return the current Pack (this)
+     * */
+    public T exclude(String path) {
+        this.excluded.add(path);
+        return (T) this;
+    }
+
+    /**
+     * Adds a generated texture to the pack, such as a recolored variant of a skin.
+     * Generated textures replace included files with the same path, and are all rendered in parallel when saving
+     *
+     * @param path path of the texture in the pack, ending with '.png'
+     * @param texProc Processor to set the base and operations of the texture
+     * @return the current Pack (this)
+     * */
+    public T texture(String path, Processor<TextureBuilder> texProc) {
+        if (this.defer(() -> this.texture(path, texProc))) return (T) this;
+        this.textures.put(path, texProc.process(new TextureBuilder()));
+        return (T) this;
+    }
+
+    /**
+     * Makes the pack save incrementally: files are only rewritten if their contents changed, and files no longer
+     * in the pack are deleted, rather than the whole output folder being deleted and saved again.
+     * What was saved is tracked in a ledger under out/.ledger/[pack_name]
+     *
+     * @return the current Pack (this)
+     * */
+    public T incremental() {
+        this.incremental = true;
+        return (T) this;
+    }
+
+    /**
+     * Sets how included resources are put into the output folder. Default is {@link IncludeStrategy#COPY}.
+     * Archives always contain copies
+     *
+     * @param strategy how to include resources
+     * @return the current Pack (this)
+     * */
+    public T includeStrategy(IncludeStrategy strategy) {
+        this.includeStrategy = strategy;
+        return (T) this;
+    }
+
+    /**
+     * Losslessly shrinks the pack's PNGs when saving: ancillary chunks are stripped, palettes and bit depths are
+     * reduced where possible, and several compression strategies are tried.
+     * Images are optimized in parallel, and cached in out/.cache/textures so unchanged images are only optimized once
+     *
+     * @return the current Pack (this)
+     * */
+    public T optimizeTextures() {
+        this.optimizeTextures = true;
+        return (T) this;
+    }
+
+    /**
+     * Saves every included PNG again into subpacks/[subpack_folder], scaled down by the factor, so devices with
+     * less memory can pick a lighter subpack without the pack keeping lower resolution copies of its art.
+     * Images are scaled in parallel, and cached in out/.cache/textures so unchanged images are only scaled once.
+     * The subpack should also be added to the manifest with {@link ManifestBuilder#subpack(String, String, int)}
+     *
+     * @param subpackFolder the folder of the subpack, in the subpacks folder
+     * @param factor how many times smaller to make each side of the textures, such as 2 for 32x from 64x
+     * @return the current Pack (this)
+     * */
+    public T downscale(String subpackFolder, int factor) {
+        if (factor < 2) throw new IllegalArgumentException("Textures must be scaled down by a factor of at least 2!");
+        this.downscaled.put(subpackFolder, factor);
+        return (T) this;
+    }
+
+    /**
+     * Skips saving when nothing has changed since the last save: the pack's builders, included resources and
+     * generated textures are fingerprinted, and if the fingerprint matches the last save's and the output is
+     * still there, the save is skipped. Fingerprints are kept under out/.cache/builds/[pack_name].
+     * Packs with custom texture operations, or whose class does not support fingerprinting, are always saved
+     *
+     * @return the current Pack (this)
+     * */
+    public T cached() {
+        this.cached = true;
+        return (T) this;
+    }
+
+    /**
+     * Sets the most files of the pack written at once when saving: included files, the manifest, and the child
+     * class's files such as each lang are written concurrently. Default is 8, 1 writes them one after another
+     *
+     * @param maxInFlight the most files written at once
+     * @return the current Pack (this)
+     * */
+    public T concurrentWrites(int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("Concurrent writes must be at least 1!");
+        this.concurrentWrites = maxInFlight;
         return (T) this;
     }
 
+    /**
+     * Adds a listener that is told how long each phase and file of every save of this pack took, and how many bytes
+     * were saved. Saves are also always recorded as JFR events, which cost next to nothing while not recording
+     *
+     * @param listener the listener to add
+     * @return the current Pack (this)
+     * */
+    public T listener(SaveListener listener) {
+        this.listeners.add(listener);
+        return (T) this;
+    }
+
+    /**
+     * Saves the pack to out/packs/[pack_name]/[pack_name] in the background, pretty printed
+     *
+     * @return the result of the save, once finished
+     * */
+    public CompletableFuture<SaveResult> saveAsync() {
+        return this.saveAsync(true);
+    }
+
+    /**
+     * Saves the pack to out/packs/[pack_name]/[pack_name] in the background
+     *
+     * @param prettyPrint whether to pretty print or not
+     * @return the result of the save, once finished
+     * */
+    public CompletableFuture<SaveResult> saveAsync(boolean prettyPrint) {
+        return this.saveAsync(null, prettyPrint);
+    }
+
+    /**
+     * Saves the pack to out/packs/[pack_name]/folderName in the background
+     *
+     * @param folderName name of the folder to which to save
+     * @param prettyPrint whether or not to pretty print
+     * @return the result of the save, once finished
+     * */
+    public CompletableFuture<SaveResult> saveAsync(String folderName, boolean prettyPrint) {
+        return CompletableFuture.supplyAsync(() -> this.save(folderName, prettyPrint), IO);
+    }
+
     /**
      * Saves the pack to out/packs/[pack_name]/[pack_name], pretty printed
+     *
+     * @return the result of the save
      * */
-    public void save() {
-        this.save(true);
+    public SaveResult save() {
+        return this.save(true);
     }
 
     /**
      * Saves the pack to out/packs/[pack_name]/[pack_name]
      *
      * @param prettyPrint whether to pretty print or not
+     * @return the result of the save
      * */
-    public void save(boolean prettyPrint) {
-        this.save(null, prettyPrint);
+    public SaveResult save(boolean prettyPrint) {
+        return this.save(null, prettyPrint);
     }
 
     /**
@@ -88,72 +326,590 @@ public abstract class BedificePack<T> {
      *
      * @param folderName name of the folder to which to save
      * @param prettyPrint whether or not to pretty print
+     * @return the result of the save
      * */
-    public void save(String folderName, boolean prettyPrint) {
+    public SaveResult save(String folderName, boolean prettyPrint) {
+        return this.materialized(() -> this.saveFolder(folderName, prettyPrint));
+    }
+
+    private SaveResult saveFolder(String folderName, boolean prettyPrint) {
         //Out folder:
         //out/pack_name
-        Path outFolder = Paths.get("out", "packs", getPackName(), folderName == null ? getPackName() : folderName);
+        String folder = folderName == null ? getPackName() : folderName;
+        Path outFolder = Paths.get("out", "packs", getPackName(), folder);
+        this.lastSave = new LastSave(folder, false);
 
+        SaveMonitor monitor = new SaveMonitor(getPackName(), listeners);
+        monitor.enter(SaveListener.Phase.PREPARE);
+        BuildCache cache = new BuildCache(Paths.get("out", ".cache", "builds", getPackName(), folder + ".build"));
+        String fingerprint = this.fingerprint(outFolder, prettyPrint);
+        if (fingerprint != null && cache.isFresh(fingerprint, outFolder)) {
+            return this.skip(cache, outFolder, monitor);
+        }
+
+        PackOutput output;
         try {
-            FileUtils.deleteDirectory(outFolder.toFile());
+            output = this.openFolder(folder, false);
         } catch (IOException e) {
-            System.out.println("Error removing old output folder!");
-            e.printStackTrace();
+            System.out.println("Error preparing output folder " + outFolder + "!");
+            throw new UncheckedIOException(e);
         }
 
-        Gson gson = (prettyPrint ? Bedifice.prettyPrint : Bedifice.noWhiteSpace);
+        return cache.store(fingerprint, this.saveInto(output, prettyPrint, monitor));
+    }
+
+    /**
+     * Opens the output of a folder save, incremental if the pack is
+     *
+     * @param folder the name of the folder in out/packs/[pack_name]
+     * @param partial whether only some files are saved, keeping the rest of the previous save
+     * @return the output
+     * @throws IOException if the folder could not be prepared
+     * */
+    private PackOutput openFolder(String folder, boolean partial) throws IOException {
+        Path outFolder = Paths.get("out", "packs", getPackName(), folder);
+        FileTransfer transfer = new FileTransfer(includeStrategy);
+        return incremental
+                ? new IncrementalOutput(outFolder, this.ledger(folder), transfer, partial)
+                : new DirectoryOutput(outFolder, transfer, !partial);
+    }
+
+    private Path ledger(String folder) {
+        return Paths.get("out", ".ledger", getPackName(), folder + ".ledger");
+    }
+
+    /**
+     * Reports a save skipped by the build cache
+     *
+     * @param cache the cache the pack was found unchanged in
+     * @param location the folder or archive the pack saves to
+     * @param monitor the monitor of the save
+     * @return the result of the skipped save
+     * */
+    private SaveResult skip(BuildCache cache, Path location, SaveMonitor monitor) {
+        System.out.println("Pack " + getPackName() + " is unchanged at " + location);
+        SaveResult result = cache.skipped(getPackName(), location);
+        monitor.skipped(result);
+        return result;
+    }
+
+    /**
+     * Saves the pack to out/packs/[pack_name]/[pack_name], and creates a patch from the previous delta save
+     *
+     * @param prettyPrint whether to pretty print or not
+     * @return the result of the comparison
+     * @see #saveDelta(String, boolean)
+     * */
+    public DeltaResult saveDelta(boolean prettyPrint) {
+        return this.saveDelta(null, prettyPrint);
+    }
 
+    /**
+     * Saves the pack to out/packs/[pack_name]/folderName, and creates a patch at out/packs/[pack_name]/folderName.patch.zip
+     * with only the files added or changed since the previous delta save, and a list of the files deleted.
+     * The patch can be applied to the previous build with {@link PackDelta#apply(Path, Path)}.
+     * A snapshot of each build is kept in out/.delta/[pack_name], so each patch follows on from the last;
+     * the first patch contains the whole pack
+     *
+     * @param folderName name of the folder to which to save
+     * @param prettyPrint whether or not to pretty print
+     * @return the result of the comparison
+     * */
+    public DeltaResult saveDelta(String folderName, boolean prettyPrint) {
+        String folder = folderName == null ? getPackName() : folderName;
+        SaveResult saved = this.save(folder, prettyPrint);
+
+        Path snapshotFile = Paths.get("out", ".delta", getPackName(), folder + ".snapshot");
+        Path patch = Paths.get("out", "packs", getPackName(), folder + ".patch.zip");
         try {
-            Path superDir = Paths.get(outFolder.toString(), "..");
-            Path superSuperDir = Paths.get(superDir.toString(), "..");
-            if (!Files.exists(superSuperDir)) Files.createDirectory(superSuperDir);
-            if (!Files.exists(superDir)) Files.createDirectory(superDir);
-            if (includes.size() == 0) Files.createDirectory(outFolder);
-            //Files.createDirectory(Paths.get("out", "packs", getPackName()));
+            Ledger snapshot = PackDelta.snapshot(saved.output());
+            DeltaResult delta = PackDelta.create(Ledger.load(snapshotFile), saved.output(), snapshot, patch);
+            snapshot.save(snapshotFile);
+            System.out.println("Saved patch of pack " + getPackName() + " to " + patch + ": " + delta.filesAdded() +
+                    " added, " + delta.filesChanged() + " changed, " + delta.filesDeleted() + " deleted");
+            return delta;
         } catch (IOException e) {
-            System.out.println("Error creating output directory");
-            e.printStackTrace();
+            System.out.println("Error creating patch " + patch + "!");
+            throw new UncheckedIOException(e);
         }
+    }
 
-        //any other included files
-        for (String include : includes) {
+    /**
+     * Saves the pack into a .mcpack archive at out/packs/[pack_name]/[pack_name].mcpack, pretty printed
+     *
+     * @return the result of the save
+     * */
+    public SaveResult saveArchive() {
+        return this.saveArchive(true);
+    }
+
+    /**
+     * Saves the pack into a .mcpack archive at out/packs/[pack_name]/[pack_name].mcpack
+     *
+     * @param prettyPrint whether to pretty print or not
+     * @return the result of the save
+     * */
+    public SaveResult saveArchive(boolean prettyPrint) {
+        return this.saveArchive(null, prettyPrint);
+    }
+
+    /**
+     * Saves the pack into a .mcpack archive at out/packs/[pack_name]/fileName.mcpack.
+     * Files are streamed straight into the archive, PNGs are stored and everything else is deflated
+     *
+     * @param fileName name of the archive, without the extension
+     * @param prettyPrint whether or not to pretty print
+     * @return the result of the save
+     * */
+    public SaveResult saveArchive(String fileName, boolean prettyPrint) {
+        return this.materialized(() -> this.saveArchiveFile(fileName, prettyPrint));
+    }
+
+    private SaveResult saveArchiveFile(String fileName, boolean prettyPrint) {
+        Path archive = Paths.get("out", "packs", getPackName(), (fileName == null ? getPackName() : fileName) + ".mcpack");
+        this.lastSave = new LastSave(fileName == null ? getPackName() : fileName, true);
+
+        SaveMonitor monitor = new SaveMonitor(getPackName(), listeners);
+        monitor.enter(SaveListener.Phase.PREPARE);
+        BuildCache cache = new BuildCache(Paths.get("out", ".cache", "builds", getPackName(), archive.getFileName() + ".build"));
+        String fingerprint = this.fingerprint(archive, prettyPrint);
+        if (fingerprint != null && cache.isFresh(fingerprint, archive)) {
+            return this.skip(cache, archive, monitor);
+        }
+
+        PackOutput output;
+        try {
+            output = new ZipOutput(archive);
+        } catch (IOException e) {
+            System.out.println("Error creating archive " + archive + "!");
+            throw new UncheckedIOException(e);
+        }
+
+        return cache.store(fingerprint, this.saveInto(output, prettyPrint, monitor));
+    }
+
+    /**
+     * Saves the pack to the output, and closes it
+     *
+     * @param output the output to save to
+     * @param prettyPrint whether or not to pretty print
+     * @return the result of the save
+     * */
+    SaveResult saveInto(PackOutput output, boolean prettyPrint) {
+        return this.materialized(() -> this.saveInto(output, prettyPrint, new SaveMonitor(getPackName(), listeners)));
+    }
+
+    /**
+     * Saves the pack to the output, and closes it
+     *
+     * @param output the output to save to
+     * @param prettyPrint whether or not to pretty print
+     * @param monitor the monitor timing the save
+     * @return the result of the save
+     * */
+    private SaveResult saveInto(PackOutput output, boolean prettyPrint, SaveMonitor monitor) {
+        Gson gson = (prettyPrint ? Bedifice.prettyPrint : Bedifice.noWhiteSpace);
+
+        output.concurrently(IO, concurrentWrites);
+        output.monitor(monitor);
+        Throwable failure = null;
+        try {
+            this.saveTo(output, gson);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        finish(output, failure);
+
+        System.out.println("Saved pack "+getPackName()+" to "+output.getLocation().toString());
+        SaveResult result = output.result(getPackName());
+        monitor.finish(result);
+        return result;
+    }
+
+    /**
+     * Waits for the output's background writes, then closes it.
+     * If the save or any background write failed, the output is aborted instead, keeping what a previous save left
+     * there that this one did not get to, and the failure is thrown, so the pack is never reported as saved
+     *
+     * @param output the output of the save
+     * @param failure what made the save fail, or null if it has not failed
+     * */
+    private static void finish(PackOutput output, Throwable failure) {
+        output.enter(SaveListener.Phase.FINISH);
+        try {
+            output.await();
+        } catch (RuntimeException e) {
+            if (failure == null) failure = e;
+            else if (failure != e) failure.addSuppressed(e);
+        }
+        if (failure == null) {
             try {
-                FileUtils.copyDirectory(Paths.get("src", "resources", include).toFile(), outFolder.toFile());
+                output.close();
             } catch (IOException e) {
-                System.out.println("Failed to copy resources from " +
-                        "src/resources/"+include+" " +
-                        "to "+outFolder.toString());
-                e.printStackTrace();
+                System.out.println("Error finishing output " + output.getLocation() + "!");
+                throw new UncheckedIOException(e);
             }
+            return;
+        }
+        try {
+            output.abort();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        if (failure instanceof Error error) throw error;
+        throw (RuntimeException) failure;
+    }
+
+    /**
+     * Saves the included resources, the manifest, and the child class's files to the output.
+     * Files can be written in the background, which are waited for before the output is closed
+     *
+     * @param output the output to save to
+     * @param gson the Gson object to use for serialization
+     * */
+    protected void saveTo(PackOutput output, Gson gson) {
+        output.enter(SaveListener.Phase.INCLUDES);
+        Map<String, Path> includes = resolveIncludes();
+        includes.keySet().removeAll(textures.keySet());
+        includes.keySet().removeAll(this.replacedIncludes());
+        Map<String, Path> originals = includes;
+        if (optimizeTextures) {
+            includes = new TextureOptimizer(Paths.get("out", ".cache", "textures")).optimize(includes);
         }
 
-        //detect manifest and skins.json
-        boolean manifestAlready = Files.exists(Paths.get(outFolder.toString(), "manifest.json"));
+        //any other included files, copied in the background
+        for (Map.Entry<String, Path> include : includes.entrySet()) {
+            output.copyAsync(include.getValue(), include.getKey());
+        }
 
-        //Manifest
-        if (!manifestAlready) {
-            String manifest = gson.toJson(this.manifest.orElseThrow(
-                    () -> new MissingFormatArgumentException("Missing skin pack manifest!")
-            ));
+        //lower resolution subpacks, scaled from the full resolution images
+        for (Map.Entry<String, Integer> subpack : downscaled.entrySet()) {
+            Map<String, Path> scaled = new TextureScaler(Paths.get("out", ".cache", "textures"), subpack.getValue()).scale(originals);
+            for (Map.Entry<String, Path> texture : scaled.entrySet()) {
+                output.copyAsync(texture.getValue(), "subpacks/" + subpack.getKey() + "/" + texture.getKey());
+            }
+        }
 
+        //generated textures, with each base image only loaded once
+        output.enter(SaveListener.Phase.TEXTURES);
+        Map<String, Texture> bases = new ConcurrentHashMap<>();
+        textures.entrySet().parallelStream().forEach(texture -> {
             try {
-                Files.writeString(Paths.get(outFolder.toString(), "manifest.json"), manifest);
+                Texture rendered = texture.getValue().render(path -> bases.computeIfAbsent(path, TextureBuilder::loadResource));
+                output.write(texture.getKey(), out -> out.write(rendered.toPng()));
+            } catch (IOException | UncheckedIOException e) {
+                System.out.println("Error generating texture " + texture.getKey() + "!");
+                e.printStackTrace();
+            }
+        });
+
+        //Manifest, unless included
+        output.enter(SaveListener.Phase.MANIFEST);
+        if (!output.exists("manifest.json")) {
+            ManifestBuilder manifest = this.manifest.orElseThrow(
+                    () -> new MissingFormatArgumentException("Missing manifest for pack " + getPackName() + "!")
+            );
+
+            output.writeAsync("manifest.json", out -> manifest.write(out, gson));
+        }
+
+        output.enter(SaveListener.Phase.ON_SAVE);
+        this.onSave(output, gson);
+    }
+
+    /**
+     * Updates only the files affected by changed resources where the pack was last saved: changed included files are
+     * put in the output again, and generated textures made from them are rendered again, through the same output as
+     * a save, so incremental packs keep their ledger up to date.
+     * If an included file was deleted, the pack was never saved, or was last saved to an archive, the whole pack is
+     * saved again instead
+     *
+     * @param changed the changed files, from src/resources and '/' separated
+     * @param prettyPrint whether or not to pretty print, if the whole pack is saved
+     * @return the result of the update, or empty if the changes do not affect this pack
+     * */
+    Optional<SaveResult> update(Set<String> changed, boolean prettyPrint) {
+        return this.materialized(() -> this.updateFolder(changed, prettyPrint));
+    }
+
+    private Optional<SaveResult> updateFolder(Set<String> changed, boolean prettyPrint) {
+        Set<String> files = new TreeSet<>();
+        Set<String> renders = new TreeSet<>();
+        for (String resource : changed) {
+            for (Path include : includes) {
+                if (include.getFileSystem() != RESOURCES.getFileSystem() || !include.startsWith(RESOURCES)) continue;
+                String prefix = RESOURCES.relativize(include).toString().replace(File.separatorChar, '/');
+                if (!prefix.isEmpty() && !prefix.endsWith("/")) prefix += "/";
+                if (resource.startsWith(prefix)) files.add(resource.substring(prefix.length()));
+            }
+            textures.forEach((path, texture) -> {
+                if (texture.getResources().contains(resource)) renders.add(path);
+            });
+        }
+        files.removeAll(textures.keySet());
+        files.removeAll(excluded);
+        if (files.isEmpty() && renders.isEmpty()) return Optional.empty();
+
+        LastSave last = this.lastSave;
+        if (last == null) return Optional.of(this.save(prettyPrint));
+        //archives can't have single files replaced
+        if (last.archive()) return Optional.of(this.saveArchive(last.name(), prettyPrint));
+        //files the child class saves itself, and subpacks scaled from changed images, can only be updated by saving again
+        Set<String> replaced = this.replacedIncludes();
+        if (files.stream().anyMatch(replaced::contains)) return Optional.of(this.save(last.name(), prettyPrint));
+        if (!downscaled.isEmpty() && files.stream().anyMatch(file -> file.endsWith(".png"))) return Optional.of(this.save(last.name(), prettyPrint));
+
+        Path outFolder = Paths.get("out", "packs", getPackName(), last.name());
+        if (!Files.isDirectory(outFolder) || (incremental && !Files.exists(this.ledger(last.name())))) {
+            return Optional.of(this.save(last.name(), prettyPrint));
+        }
+
+        Map<String, Path> sources = new LinkedHashMap<>();
+        for (String file : files) {
+            Path source = null;
+            //the last include with the file wins, as when saving
+            for (int i = includes.size() - 1; i >= 0 && source == null; i--) {
+                Path candidate = includes.get(i).resolve(file);
+                if (Files.isRegularFile(candidate)) source = candidate;
+            }
+            //a deleted file may have replaced a generated one, such as an included manifest.json
+            if (source == null && Files.exists(outFolder.resolve(file))) return Optional.of(this.save(last.name(), prettyPrint));
+            if (source != null) sources.put(file, source);
+        }
+        if (optimizeTextures) sources = new TextureOptimizer(Paths.get("out", ".cache", "textures")).optimize(sources);
+
+        SaveMonitor monitor = new SaveMonitor(getPackName(), listeners);
+        monitor.enter(SaveListener.Phase.PREPARE);
+        PackOutput output;
+        try {
+            output = this.openFolder(last.name(), true);
+        } catch (IOException e) {
+            System.out.println("Error updating pack " + getPackName() + "!");
+            throw new UncheckedIOException(e);
+        }
+        output.concurrently(IO, concurrentWrites);
+        output.monitor(monitor);
+        Throwable failure = null;
+        try {
+            output.enter(SaveListener.Phase.INCLUDES);
+            sources.forEach((file, source) -> output.copyAsync(source, file));
+
+            output.enter(SaveListener.Phase.TEXTURES);
+            Map<String, Texture> bases = new ConcurrentHashMap<>();
+            renders.parallelStream().forEach(path -> {
+                Texture rendered = textures.get(path).render(resource -> bases.computeIfAbsent(resource, TextureBuilder::loadResource));
+                try {
+                    output.write(path, out -> out.write(rendered.toPng()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        finish(output, failure);
+
+        SaveResult result = output.result(getPackName());
+        monitor.finish(result);
+        System.out.println("Updated " + result.filesWritten() + " files of pack " + getPackName() + " in " + outFolder);
+        return Optional.of(result);
+    }
+
+    /**
+     * Fingerprints everything the saved pack depends on: the save settings, the included files' paths, sizes and
+     * modification times, the generated textures' descriptions, the manifest, and the child class's builders
+     *
+     * @param location the folder or archive the pack saves to
+     * @param prettyPrint whether or not to pretty print
+     * @return the hex fingerprint, or null if the pack is not cached or cannot be fingerprinted
+     * */
+    private String fingerprint(Path location, boolean prettyPrint) {
+        if (!cached) return null;
+        Gson gson = (prettyPrint ? Bedifice.prettyPrint : Bedifice.noWhiteSpace);
+
+        MessageDigest digest = Hashing.digest();
+        try (PrintStream out = new PrintStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest), false, StandardCharsets.UTF_8)) {
+            out.println(BuildCache.VERSION);
+            out.println(getClass().getName());
+            out.println(location.toString().replace(File.separatorChar, '/'));
+            out.println(prettyPrint + " " + incremental + " " + includeStrategy + " " + optimizeTextures + " " + downscaled);
+
+            for (Map.Entry<String, Path> include : resolveIncludes().entrySet()) {
+                BasicFileAttributes attributes = Files.readAttributes(include.getValue(), BasicFileAttributes.class);
+                out.println(include.getKey() + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toMillis());
+            }
+            for (Map.Entry<String, TextureBuilder> texture : textures.entrySet()) {
+                Optional<String> description = texture.getValue().describe();
+                if (description.isEmpty()) return null;
+                out.println(texture.getKey() + "\t" + description.get());
+            }
+
+            if (manifest.isPresent()) manifest.get().write(out, gson);
+            out.println();
+            if (!this.fingerprint(out, gson)) return null;
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error fingerprinting pack " + getPackName() + ", saving it anyway");
+            e.printStackTrace();
+            return null;
+        }
+        return Hashing.hex(digest.digest());
+    }
+
+    /**
+     * Called when fingerprinting the pack for the build cache, for the child class to write everything its
+     * {@link #onSave(PackOutput, Gson)} depends on, such as its builders' JSON.
+     * The default supports no caching, as the child class's files are unknown
+     *
+     * @param out the stream to write the child class's inputs to
+     * @param gson the Gson object to use for serialization, with correct pretty-printing-or-not status
+     * @return whether the child class supports caching
+     * @throws IOException if writing fails
+     * */
+    protected boolean fingerprint(OutputStream out, Gson gson) throws IOException {
+        return false;
+    }
+
+    /**
+     * Finds every file in the included resource folders.
+     * If several includes contain the same file, the one included last is used
+     *
+     * @return the included files, keyed by their path in the pack
+     * */
+    protected Map<String, Path> resolveIncludes() {
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (Path root : includes) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(Files::isRegularFile).forEach(file -> {
+                    String path = root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/");
+                    files.remove(path);
+                    if (!excluded.contains(path)) files.put(path, file);
+                });
             } catch (IOException e) {
-                System.out.println("Error saving pack manifest for the " + getPackName() + " SkinPack!");
+                System.out.println("Failed to read resources from " + root);
                 e.printStackTrace();
             }
         }
+        return files;
+    }
+
+    /**
+     * Called by every method defining the pack's contents from a processor, before running it.
+     * If the pack is lazy, the definition is kept to be run before the next save instead
+     *
+     * @param definition the call defining the contents, run again when the pack is saved
+     * @return true if the definition was deferred, so should not be run now
+     * */
+    protected boolean defer(Runnable definition) {
+        if (this.materializing) return false;
+        this.defined = true;
+        if (!this.lazy) return false;
+        this.deferred.add(definition);
+        return true;
+    }
+
+    /**
+     * Called after a lazy pack is saved, for the child class to drop everything its definitions built.
+     * Child classes should call this too, which releases the manifest and generated textures
+     * */
+    protected void release() {
+        this.manifest = Optional.empty();
+        this.textures.clear();
+    }
+
+    /**
+     * Runs a query or save of the pack's contents. A lazy pack's definitions are run first, unless it is already being
+     * saved, and what they built is released afterwards, so the query sees the whole pack
+     *
+     * @param query the query, whose result must not be a view of anything that is released
+     * @return the result of the query
+     * */
+    protected <R> R materialized(Supplier<R> query) {
+        this.materialize();
+        try {
+            return query.get();
+        } finally {
+            this.dematerialize();
+        }
+    }
+
+    /**
+     * Runs a lazy pack's definitions, unless it is already being saved.
+     * If a definition fails, whatever the others built is released, so the pack is left as it was
+     * */
+    private synchronized void materialize() {
+        if (!this.lazy) return;
+        if (this.saving > 0) {
+            this.saving++;
+            return;
+        }
+        this.materializing = true;
+        try {
+            this.deferred.forEach(Runnable::run);
+        } catch (RuntimeException | Error e) {
+            this.release();
+            throw e;
+        } finally {
+            this.materializing = false;
+        }
+        this.saving++;
+    }
 
-        this.onSave(outFolder, gson);
+    /**
+     * Releases what a lazy pack's definitions built, once no save is using it
+     * */
+    private synchronized void dematerialize() {
+        if (this.lazy && --this.saving == 0) this.release();
+    }
 
-        System.out.println("Saved skin pack "+getPackName()+" to "+outFolder.toString());
+    /**
+     * Returns the included files the child class saves itself in {@link #onSave(PackOutput, Gson)}, such as textures
+     * stitched into an atlas, which are then not put in the output as they are.
+     * The default is none
+     *
+     * @return the paths in the pack of the replaced files
+     * */
+    protected Set<String> replacedIncludes() {
+        return Set.of();
     }
 
     /**
      * Called when saving, for the child class to save any other files
      *
-     * @param outputFolder Path of the output folder
+     * @param output the output to save files to
      * @param gson the Gson object to use for serialization, with correct pretty-printing-or-not status
      * */
-    protected abstract void onSave(Path outputFolder, Gson gson);
+    protected abstract void onSave(PackOutput output, Gson gson);
+
+    /**
+     * Where a pack was last saved
+     *
+     * @param name the name of the folder or archive, without the extension
+     * @param archive whether it was saved to a .mcpack archive
+     * */
+    private record LastSave(String name, boolean archive) {
+    }
+
+    /**
+     * How included resources are put into the output folder
+     * */
+    public enum IncludeStrategy {
+        /**
+         * Copies the files, with the copying done by the kernel where supported
+         * */
+        COPY,
+        /**
+         * Hard links the files, so saving only costs metadata operations.
+         * Falls back to {@link #COPY} if the resources and output are on different file systems.
+         * Linked files should not be edited in the output folder, as that also edits the resource
+         * */
+        LINK,
+        /**
+         * Copies each distinct file's contents once into a store at out/.store, named by its hash, and hard links
+         * the files into the output folder from there. Packs that include the same files then share one copy on disk
+         * and in the page cache, even if the files come from different folders.
+         * Falls back to {@link #COPY} if the store and output are on different file systems.
+         * Linked files should not be edited in the output folder, as that also edits every pack's copy
+         * */
+        STORE
+    }
 }
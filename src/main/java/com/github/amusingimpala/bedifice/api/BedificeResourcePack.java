@@ -0,0 +1,195 @@
+package com.github.amusingimpala.bedifice.api;
+
+import com.github.amusingimpala.bedifice.api.builders.resource.TextureDataBuilder;
+import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.api.util.Texture;
+import com.github.amusingimpala.bedifice.impl.output.PackOutput;
+import com.github.amusingimpala.bedifice.impl.texture.TextureAtlas;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Class for bEdifice created resource packs
+ * */
+@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+public class BedificeResourcePack extends BedificePack<BedificeResourcePack> {
+
+    private Optional<TextureDataBuilder> terrainTextures = Optional.empty();
+    private Optional<TextureDataBuilder> itemTextures = Optional.empty();
+    private final Map<String, Atlas> atlases = new LinkedHashMap<>();
+
+    /**
+     * Constructs a ResourcePack with the given name
+     *
+     * @param name the Name of the pack
+     * */
+    public BedificeResourcePack(String name) {
+        super(name);
+    }
+
+    /**
+     * Creates a textures/terrain_texture.json, naming the textures of blocks
+     *
+     * @param textureProc the Processor to add the block textures
+     * @return the current BedificeResourcePack (this)
+     * */
+    public BedificeResourcePack terrainTextures(Processor<TextureDataBuilder> textureProc) {
+        if (this.defer(() -> this.terrainTextures(textureProc))) return this;
+        this.terrainTextures = Optional.of(textureProc.process(new TextureDataBuilder(this.getPackName(), "atlas.terrain")));
+        return this;
+    }
+
+    /**
+     * Creates a textures/item_texture.json, naming the textures of items
+     *
+     * @param textureProc the Processor to add the item textures
+     * @return the current BedificeResourcePack (this)
+     * */
+    public BedificeResourcePack itemTextures(Processor<TextureDataBuilder> textureProc) {
+        if (this.defer(() -> this.itemTextures(textureProc))) return this;
+        this.itemTextures = Optional.of(textureProc.process(new TextureDataBuilder(this.getPackName(), "atlas.items")));
+        return this;
+    }
+
+    /**
+     * Stitches included textures into atlas pages at textures/atlas/[name]_[page].png, instead of saving them one
+     * file each, so the pack holds far fewer textures. Where each texture was put is saved to textures/atlas/[name].json,
+     * for UV mapped content such as geometry and UI to refer to.
+     * Block and item textures are atlased by the game itself, so should be left out
+     *
+     * @param name the name of the atlas
+     * @param pageSize the width and most height of each page, in pixels
+     * @param paths the paths in the pack of the included PNGs to stitch. Paths ending with '/' stitch every PNG in the folder
+     * @return the current BedificeResourcePack (this)
+     * */
+    public BedificeResourcePack atlas(String name, int pageSize, String... paths) {
+        if (pageSize < 1) throw new IllegalArgumentException("Atlas page size must be at least 1!");
+        if (this.defer(() -> this.atlas(name, pageSize, paths))) return this;
+        this.atlases.put(name, new Atlas(pageSize, List.of(paths)));
+        return this;
+    }
+
+    /**
+     * Returns the included files each atlas stitches
+     *
+     * @param includes the included files, keyed by their path in the pack
+     * @return the paths of the stitched files of each atlas, keyed by the atlas name
+     * */
+    private Map<String, List<String>> resolveAtlases(Map<String, Path> includes) {
+        Map<String, List<String>> resolved = new LinkedHashMap<>();
+        Set<String> taken = new HashSet<>();
+        atlases.forEach((name, atlas) -> {
+            List<String> members = new ArrayList<>();
+            for (String path : atlas.paths()) {
+                if (path.endsWith("/")) {
+                    for (String include : includes.keySet()) {
+                        if (include.startsWith(path) && include.endsWith(".png") && taken.add(include)) members.add(include);
+                    }
+                } else if (!includes.containsKey(path) || !path.endsWith(".png")) {
+                    throw new MissingFormatArgumentException("Missing PNG " + path + " for atlas " + name + "!");
+                } else if (taken.add(path)) {
+                    members.add(path);
+                }
+            }
+            resolved.put(name, members);
+        });
+        return resolved;
+    }
+
+    @Override
+    protected Set<String> replacedIncludes() {
+        if (atlases.isEmpty()) return Set.of();
+        Set<String> replaced = new HashSet<>();
+        resolveAtlases(resolveIncludes()).values().forEach(replaced::addAll);
+        return replaced;
+    }
+
+    /**
+     * Releases the texture data and atlases built for a lazy save
+     * */
+    @Override
+    protected void release() {
+        super.release();
+        this.terrainTextures = Optional.empty();
+        this.itemTextures = Optional.empty();
+        this.atlases.clear();
+    }
+
+    /**
+     * Fingerprints the texture data and atlases
+     *
+     * @param out the stream to write the pack's inputs to
+     * @param gson the correctly configured Gson for serialization
+     * @return true, resource packs support caching
+     * @throws IOException if writing fails
+     * */
+    @Override
+    protected boolean fingerprint(OutputStream out, Gson gson) throws IOException {
+        if (terrainTextures.isPresent()) terrainTextures.get().write(out, gson);
+        if (itemTextures.isPresent()) itemTextures.get().write(out, gson);
+        for (Map.Entry<String, Atlas> atlas : atlases.entrySet()) {
+            out.write(("\n" + atlas.getKey() + "\t" + atlas.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return true;
+    }
+
+    /**
+     * Saves the terrain_texture.json, item_texture.json, and atlases.
+     * Stitched textures are loaded in parallel, and each atlas's pages are drawn and saved in parallel
+     *
+     * @param output the output to save files to
+     * @param gson the correctly configured Gson for serialization
+     * */
+    @Override
+    protected void onSave(PackOutput output, Gson gson) {
+        if (terrainTextures.isPresent() && !output.exists("textures/terrain_texture.json")) {
+            TextureDataBuilder terrain = terrainTextures.get();
+            output.writeAsync("textures/terrain_texture.json", out -> terrain.write(out, gson));
+        }
+        if (itemTextures.isPresent() && !output.exists("textures/item_texture.json")) {
+            TextureDataBuilder items = itemTextures.get();
+            output.writeAsync("textures/item_texture.json", out -> items.write(out, gson));
+        }
+
+        if (atlases.isEmpty()) return;
+        Map<String, Path> includes = resolveIncludes();
+        resolveAtlases(includes).forEach((name, members) -> {
+            Map<String, Texture> textures = new ConcurrentHashMap<>();
+            members.parallelStream().forEach(member -> {
+                try {
+                    textures.put(member.substring(0, member.length() - ".png".length()), Texture.load(includes.get(member)));
+                } catch (IOException e) {
+                    System.out.println("Error loading texture " + member + " for atlas " + name + "!");
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            //sorted, so the same textures are always packed the same way
+            TextureAtlas atlas = TextureAtlas.stitch("textures/atlas/" + name, atlases.get(name).pageSize(), new TreeMap<>(textures));
+            List<Texture> pages = atlas.getPages();
+            IntStream.range(0, pages.size()).parallel().forEach(page -> {
+                try {
+                    output.write(atlas.getPagePath(page) + ".png", out -> out.write(pages.get(page).toPng()));
+                } catch (IOException e) {
+                    System.out.println("Error saving page " + page + " of atlas " + name + "!");
+                    throw new UncheckedIOException(e);
+                }
+            });
+            output.writeAsync("textures/atlas/" + name + ".json", out -> atlas.write(out, gson));
+        });
+    }
+
+    /**
+     * Textures to stitch into an atlas
+     * */
+    private record Atlas(int pageSize, List<String> paths) {
+    }
+}
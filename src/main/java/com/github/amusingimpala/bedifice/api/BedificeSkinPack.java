@@ -3,14 +3,19 @@ package com.github.amusingimpala.bedifice.api;
 import com.github.amusingimpala.bedifice.api.builders.LangBuilder;
 import com.github.amusingimpala.bedifice.api.builders.skins.SkinBuilder;
 import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.impl.LangReader;
+import com.github.amusingimpala.bedifice.impl.output.PackOutput;
 import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class for bEdifice created skin packs
@@ -18,7 +23,7 @@ import java.util.*;
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public class BedificeSkinPack extends BedificePack<BedificeSkinPack> {
 
-    private Optional<JsonObject> skinsJson = Optional.empty();
+    private Optional<SkinBuilder> skinsJson = Optional.empty();
     private Optional<List<LangBuilder>> langs = Optional.empty();
 
     /**
@@ -37,7 +42,8 @@ public class BedificeSkinPack extends BedificePack<BedificeSkinPack> {
      * @return the current BedificeSkinPack (this)
      * */
     public BedificeSkinPack skins(Processor<SkinBuilder> skinProc) {
-        this.skinsJson = Optional.of(skinProc.process(new SkinBuilder(this.getPackName())).build());
+        if (this.defer(() -> this.skins(skinProc))) return this;
+        this.skinsJson = Optional.of(skinProc.process(new SkinBuilder(this.getPackName())));
         return this;
     }
 
@@ -49,51 +55,108 @@ public class BedificeSkinPack extends BedificePack<BedificeSkinPack> {
      * @return the current BedificeSkinPack (this)
      */
     public BedificeSkinPack translations(String locale, Processor<LangBuilder> langProc) {
+        if (this.defer(() -> this.translations(locale, langProc))) return this;
         if (langs.isEmpty()) langs = Optional.of(new ArrayList<>());
         langs.get().add(langProc.process(new LangBuilder(locale)));
         return this;
     }
 
     /**
-     * Saves the skins.json and any langs
+     * Imports every locale from translation files, in parallel, one file per worker.
+     * A .lang file's locale is its file name, such as en_US.lang, while .csv and .tsv files have a header row of key
+     * followed by locales. Directories are searched (not recursively) for translation files.
+     * Locales already in the pack have the imported translations added to them
      *
-     * @param gson the correctly configured Gson for serialization
-     * @param outFolder the folder into which to output files
-     * */
-    @Override
-    protected void onSave(Path outFolder, Gson gson) {
-        boolean skinsJsonAlready = Files.exists(Paths.get(outFolder.toString(), "skins.json"));
+     * @param paths the translation files and folders to import
+     * @return the current BedificeSkinPack (this)
+     */
+    public BedificeSkinPack translations(Path... paths) {
+        if (this.defer(() -> this.translations(paths))) return this;
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> list = Files.list(path)) {
+                    list.filter(LangReader::isTranslationFile).sorted().forEach(files::add);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                files.add(path);
+            }
+        }
 
-        //langs
-        if (langs.isPresent()) {
+        List<List<LangBuilder>> imported = files.parallelStream().map(file -> {
             try {
-                Files.createDirectory(Paths.get(outFolder.toString(), "texts"));
+                return LangReader.read(file);
             } catch (IOException e) {
-                System.out.println("Error creating lang 'texts' folder!");
-                e.printStackTrace();
+                System.out.println("Error importing translations from " + file + "!");
+                throw new UncheckedIOException(e);
             }
+        }).collect(Collectors.toList());
+
+        if (langs.isEmpty()) langs = Optional.of(new ArrayList<>());
+        for (List<LangBuilder> fileLangs : imported) {
+            for (LangBuilder lang : fileLangs) {
+                Optional<LangBuilder> existing = langs.get().stream()
+                        .filter(other -> other.getLocale().equals(lang.getLocale()))
+                        .findFirst();
+                if (existing.isPresent()) existing.get().translations(lang.getTranslations());
+                else langs.get().add(lang);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Releases the skins.json and langs built for a lazy save
+     * */
+    @Override
+    protected void release() {
+        super.release();
+        this.skinsJson = Optional.empty();
+        this.langs = Optional.empty();
+    }
+
+    /**
+     * Fingerprints the skins.json and langs
+     *
+     * @param out the stream to write the pack's inputs to
+     * @param gson the correctly configured Gson for serialization
+     * @return true, skin packs support caching
+     * @throws IOException if writing fails
+     * */
+    @Override
+    protected boolean fingerprint(OutputStream out, Gson gson) throws IOException {
+        if (skinsJson.isPresent()) skinsJson.get().write(out, gson);
+        if (langs.isPresent()) {
             for (LangBuilder lang : langs.get()) {
-                try {
-                    Files.writeString(
-                            Paths.get(outFolder.toString(), "texts", lang.getLocale()+".lang"),
-                            lang.assemble()
-                    );
-                } catch (IOException e) {
-                    System.out.println("Error saving "+lang.getLocale()+" lang!");
-                    e.printStackTrace();
-                }
+                out.write(("\n" + lang.getLocale() + "\n").getBytes(StandardCharsets.UTF_8));
+                lang.write(out);
             }
         }
+        return true;
+    }
 
+    /**
+     * Saves the skins.json and any langs
+     *
+     * @param gson the correctly configured Gson for serialization
+     * @param output the output to save files to
+     * */
+    @Override
+    protected void onSave(PackOutput output, Gson gson) {
         //skins.json
-        if (!skinsJsonAlready) {
-            String skinsJson = gson.toJson(this.skinsJson.orElseThrow(
+        if (!output.exists("skins.json")) {
+            SkinBuilder skinsJson = this.skinsJson.orElseThrow(
                     () -> new MissingFormatArgumentException("Missing skins.json!")
-            ));
-            try {
-                Files.writeString(Paths.get(outFolder.toString(), "skins.json"), skinsJson);
-            } catch (IOException e) {
-                System.out.println("Error saving skins.json!");
+            );
+            output.writeAsync("skins.json", out -> skinsJson.write(out, gson));
+        }
+
+        //langs, each written concurrently
+        if (langs.isPresent()) {
+            for (LangBuilder lang : langs.get()) {
+                output.writeAsync("texts/" + lang.getLocale() + ".lang", lang::write);
             }
         }
     }
@@ -0,0 +1,222 @@
+package com.github.amusingimpala.bedifice.api;
+
+import com.github.amusingimpala.bedifice.impl.DependencyGraph;
+import com.github.amusingimpala.bedifice.impl.ResourceWatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A collection of packs that are saved together.
+ * Packs are saved concurrently on a bounded work-stealing pool, after the packs their manifests depend on,
+ * and a pack failing to save only stops the packs depending on it
+ * */
+public class BedificeWorkspace {
+
+    /** How long to wait for more changes after a change when watching, in milliseconds */
+    private static final long WATCH_DEBOUNCE_MILLIS = 50;
+
+    private final List<BedificePack<?>> packs = new ArrayList<>();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Adds packs to the workspace
+     *
+     * @param packs the packs to add
+     * @return the current BedificeWorkspace (this)
+     * */
+    public BedificeWorkspace pack(BedificePack<?>... packs) {
+        this.packs.addAll(Arrays.asList(packs));
+        return this;
+    }
+
+    /**
+     * Adds packs to the workspace
+     *
+     * @param packs the packs to add
+     * @return the current BedificeWorkspace (this)
+     * */
+    public BedificeWorkspace packs(Collection<? extends BedificePack<?>> packs) {
+        this.packs.addAll(packs);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of packs saved at the same time. Default is the number of available processors
+     *
+     * @param parallelism the maximum number of packs saved at once
+     * @return the current BedificeWorkspace (this)
+     * */
+    public BedificeWorkspace parallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1!");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Returns the packs in this workspace
+     *
+     * @return an unmodifiable view of the packs
+     * */
+    public List<BedificePack<?>> getPacks() {
+        return Collections.unmodifiableList(this.packs);
+    }
+
+    /**
+     * Checks the manifests of the packs for UUIDs used more than once, dependencies on packs not in the workspace,
+     * and dependency cycles. Also run on every save
+     *
+     * @return the problems found
+     * */
+    public DependencyReport checkDependencies() {
+        return new DependencyGraph(this.packs).getReport();
+    }
+
+    /**
+     * Returns the folder each pack is saved to, which is the pack's name unless another pack has the same name,
+     * such as the resource and behaviour packs of an addon. Packs sharing a name are told apart by their type,
+     * as in [pack_name]_resources, and then by their position, so no two packs write into the same folder
+     *
+     * @param packs the packs
+     * @return the folder of each pack, in the same order
+     * */
+    static String[] folders(List<BedificePack<?>> packs) {
+        Map<String, Integer> names = new HashMap<>();
+        for (BedificePack<?> pack : packs) names.merge(pack.getPackName(), 1, Integer::sum);
+        String[] folders = new String[packs.size()];
+        Set<String> taken = new HashSet<>();
+        for (int i = 0; i < packs.size(); i++) {
+            BedificePack<?> pack = packs.get(i);
+            String folder = pack.getPackName();
+            if (names.get(folder) > 1) {
+                if (pack instanceof BedificeResourcePack) folder += "_resources";
+                else if (pack instanceof BedificeBehvaiourPack) folder += "_behaviours";
+                else if (pack instanceof BedificeSkinPack) folder += "_skins";
+            }
+            if (!taken.add(folder)) {
+                String base = folder;
+                for (int n = 2; !taken.add(folder); n++) folder = base + "_" + n;
+            }
+            folders[i] = folder;
+        }
+        return folders;
+    }
+
+    /**
+     * Saves every pack to out/packs/[pack_name]/[pack_name], pretty printed.
+     * Packs sharing a name are saved to [pack_name]_resources, [pack_name]_behaviours or [pack_name]_skins instead
+     *
+     * @return the aggregate result of the build
+     * */
+    public BuildResult save() {
+        return this.save(true);
+    }
+
+    /**
+     * Saves every pack to out/packs/[pack_name]/[pack_name].
+     * Packs sharing a name are saved to [pack_name]_resources, [pack_name]_behaviours or [pack_name]_skins instead.
+     * Packs are saved a level of the dependency graph at a time, the packs in each level at the same time.
+     * Packs depending on a pack that failed to save are not saved
+     *
+     * @param prettyPrint whether to pretty print or not
+     * @return the aggregate result of the build
+     * */
+    public BuildResult save(boolean prettyPrint) {
+        DependencyGraph graph = new DependencyGraph(this.packs);
+        if (!graph.getReport().isClean()) {
+            System.out.print("Dependency problems in workspace:\n" + graph.getReport().format());
+        }
+
+        String[] folders = folders(this.packs);
+        SaveResult[] results = new SaveResult[packs.size()];
+        Throwable[] errors = new Throwable[packs.size()];
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, packs.size())));
+        try {
+            for (List<Integer> level : graph.getLevels()) {
+                List<Integer> saving = new ArrayList<>(level.size());
+                List<Callable<SaveResult>> tasks = new ArrayList<>(level.size());
+                for (int i : level) {
+                    Optional<Integer> failed = Arrays.stream(graph.getDependencies(i)).filter(d -> errors[d] != null).boxed().findFirst();
+                    if (failed.isPresent()) {
+                        errors[i] = new IllegalStateException("Dependency " + packs.get(failed.get()).getPackName() + " failed to save!");
+                        continue;
+                    }
+                    BedificePack<?> pack = packs.get(i);
+                    String folder = folders[i];
+                    saving.add(i);
+                    tasks.add(() -> pack.save(folder, prettyPrint));
+                }
+
+                List<Future<SaveResult>> futures = pool.invokeAll(tasks);
+                for (int j = 0; j < futures.size(); j++) {
+                    int i = saving.get(j);
+                    try {
+                        results[i] = futures.get(j).get();
+                    } catch (ExecutionException e) {
+                        System.out.println("Error saving pack " + packs.get(i).getPackName() + "!");
+                        e.getCause().printStackTrace();
+                        errors[i] = e.getCause();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (int i = 0; i < packs.size(); i++) {
+                if (results[i] == null && errors[i] == null) errors[i] = e;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<SaveResult> saved = new ArrayList<>();
+        Map<BedificePack<?>, Throwable> failures = new LinkedHashMap<>();
+        for (int i = 0; i < packs.size(); i++) {
+            if (results[i] != null) saved.add(results[i]);
+            else failures.put(packs.get(i), errors[i]);
+        }
+        return new BuildResult(Collections.unmodifiableList(saved), Collections.unmodifiableMap(failures));
+    }
+
+    /**
+     * Saves every pack, then watches src/resources and updates only the files affected by each burst of changes.
+     * Changes to included files are put in the output, and generated textures made from them are rendered again.
+     * Blocks until the thread is interrupted, and a pack failing to update does not stop the watching
+     *
+     * @param prettyPrint whether to pretty print or not
+     * */
+    public void watch(boolean prettyPrint) {
+        this.save(prettyPrint);
+        try (ResourceWatcher watcher = new ResourceWatcher(Paths.get("src", "resources"))) {
+            System.out.println("Watching src/resources for changes");
+            while (!Thread.currentThread().isInterrupted()) {
+                ResourceWatcher.Changes changes = watcher.poll(WATCH_DEBOUNCE_MILLIS);
+                long start = System.nanoTime();
+                if (changes.overflowed()) {
+                    this.save(prettyPrint);
+                    continue;
+                }
+                for (BedificePack<?> pack : packs) {
+                    try {
+                        pack.update(changes.paths(), prettyPrint);
+                    } catch (RuntimeException e) {
+                        System.out.println("Error updating pack " + pack.getPackName() + "!");
+                        e.printStackTrace();
+                    }
+                }
+                System.out.println("Updated in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Error watching src/resources!");
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.amusingimpala.bedifice.api;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate result of building several packs at once
+ *
+ * @param saved the results of the packs that were saved successfully
+ * @param failures the packs that failed to save, along with what caused them to fail. Keyed by the packs themselves,
+ *                 as a resource and a behaviour pack may share a name
+ * */
+public record BuildResult(List<SaveResult> saved, Map<BedificePack<?>, Throwable> failures) {
+
+    /**
+     * Returns whether every pack was saved
+     *
+     * @return true if no pack failed to save
+     * */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Returns the total number of bytes written by every saved pack
+     *
+     * @return the bytes written
+     * */
+    public long bytesWritten() {
+        return saved.stream().mapToLong(SaveResult::bytesWritten).sum();
+    }
+
+    /**
+     * Returns the total number of bytes that did not need to be written, because they were already up to date
+     *
+     * @return the bytes skipped
+     * */
+    public long bytesSkipped() {
+        return saved.stream().mapToLong(SaveResult::bytesSkipped).sum();
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.amusingimpala.bedifice.api;
+
+import java.nio.file.Path;
+
+/**
+ * Summary of a patch created or applied by {@link PackDelta}
+ *
+ * @param patch the patch archive
+ * @param filesAdded the number of files in the new build but not the old one
+ * @param filesChanged the number of files whose contents changed
+ * @param filesDeleted the number of files in the old build but not the new one
+ * @param bytes the number of bytes of added and changed files
+ * */
+public record DeltaResult(Path patch, int filesAdded, int filesChanged, int filesDeleted, long bytes) {
+
+    /**
+     * @return whether the builds were the same, so the patch changes nothing
+     * */
+    public boolean isEmpty() {
+        return filesAdded == 0 && filesChanged == 0 && filesDeleted == 0;
+    }
+}
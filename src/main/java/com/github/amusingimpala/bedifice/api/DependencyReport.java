@@ -0,0 +1,37 @@
+package com.github.amusingimpala.bedifice.api;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Problems found among the manifests of a workspace's packs
+ *
+ * @param duplicates UUIDs used by more than one pack header or module, with the names of the packs using each
+ * @param unresolved dependencies on UUIDs that are not a pack header in the workspace, keyed by pack name.
+ *                   These may be packs built elsewhere, or module UUIDs used by mistake
+ * @param cycles the names of packs that depend on themselves, directly or through other packs
+ * */
+public record DependencyReport(Map<String, List<String>> duplicates, Map<String, List<String>> unresolved, List<String> cycles) {
+
+    /**
+     * @return whether no problems were found
+     * */
+    public boolean isClean() {
+        return duplicates.isEmpty() && unresolved.isEmpty() && cycles.isEmpty();
+    }
+
+    /**
+     * Formats the report, a line per problem
+     *
+     * @return the formatted report, empty if there are no problems
+     * */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        duplicates.forEach((uuid, packs) -> report.append("Duplicate UUID ").append(uuid)
+                .append(" used by ").append(packs).append('\n'));
+        unresolved.forEach((pack, uuids) -> report.append("Pack ").append(pack)
+                .append(" depends on packs not in the workspace: ").append(uuids).append('\n'));
+        if (!cycles.isEmpty()) report.append("Dependency cycle between ").append(cycles).append('\n');
+        return report.toString();
+    }
+}
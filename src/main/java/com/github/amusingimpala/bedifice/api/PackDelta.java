@@ -0,0 +1,198 @@
+package com.github.amusingimpala.bedifice.api;
+
+import com.github.amusingimpala.bedifice.impl.Hashing;
+import com.github.amusingimpala.bedifice.impl.output.Ledger;
+import com.github.amusingimpala.bedifice.impl.output.ZipOutput;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Creates and applies patches between two builds of a pack, so an update only needs the files that changed.
+ * A patch is a zip archive of the added and changed files under files/, and a delta/manifest.tsv listing every
+ * added (A), changed (M), and deleted (D) file with its new and old content hash.
+ * Applying a patch checks the old hashes first, so a patch is never applied to a folder it was not made for
+ * */
+public final class PackDelta {
+
+    private static final String MANIFEST = "delta/manifest.tsv";
+    private static final String FILES = "files/";
+
+    private PackDelta() {
+    }
+
+    /**
+     * Creates a patch that turns the base folder into the current folder
+     *
+     * @param base the folder of the old build
+     * @param current the folder of the new build
+     * @param patch the patch archive to create
+     * @return the result of the comparison
+     * @throws IOException if either folder could not be read, or the patch could not be written
+     * */
+    public static DeltaResult create(Path base, Path current, Path patch) throws IOException {
+        return create(snapshot(base), current, snapshot(current), patch);
+    }
+
+    /**
+     * Creates a patch that turns a build recorded in the base snapshot into the current folder
+     *
+     * @param base the snapshot of the old build
+     * @param current the folder of the new build
+     * @param currentSnapshot the snapshot of the new build
+     * @param patch the patch archive to create
+     * @return the result of the comparison
+     * @throws IOException if the patch could not be written
+     * */
+    static DeltaResult create(Ledger base, Path current, Ledger currentSnapshot, Path patch) throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<String> payload = new ArrayList<>();
+        int added = 0, changed = 0, deleted = 0;
+        long bytes = 0;
+
+        for (Map.Entry<String, Ledger.Entry> file : new TreeMap<>(currentSnapshot.getEntries()).entrySet()) {
+            Ledger.Entry old = base.get(file.getKey());
+            if (old != null && old.hash().equals(file.getValue().hash())) continue;
+            lines.add((old == null ? "A" : "M") + "\t" + file.getValue().hash() + "\t" + (old == null ? "-" : old.hash()) + "\t" + file.getKey());
+            payload.add(file.getKey());
+            bytes += file.getValue().size();
+            if (old == null) added++;
+            else changed++;
+        }
+        for (Map.Entry<String, Ledger.Entry> file : new TreeMap<>(base.getEntries()).entrySet()) {
+            if (currentSnapshot.get(file.getKey()) != null) continue;
+            lines.add("D\t-\t" + file.getValue().hash() + "\t" + file.getKey());
+            deleted++;
+        }
+
+        try (ZipOutput zip = new ZipOutput(patch)) {
+            //the manifest is first, so it can be read before the files
+            zip.write(MANIFEST, out -> {
+                for (String line : lines) out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            });
+            for (String path : payload) {
+                zip.copy(current.resolve(path), FILES + path);
+            }
+        }
+        return new DeltaResult(patch, added, changed, deleted, bytes);
+    }
+
+    /**
+     * Applies a patch to a folder in place. Every changed and deleted file is checked against the patch before
+     * anything is changed, and each file is replaced atomically
+     *
+     * @param patch the patch archive
+     * @param directory the folder of the old build, which becomes the new build
+     * @return what the patch changed
+     * @throws IOException if the folder does not match the build the patch was made from, or could not be updated
+     * */
+    public static DeltaResult apply(Path patch, Path directory) throws IOException {
+        try (ZipFile zip = new ZipFile(patch.toFile())) {
+            ZipEntry manifest = zip.getEntry(MANIFEST);
+            if (manifest == null) throw new IOException("Not a pack patch: " + patch);
+
+            List<String[]> lines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(manifest), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) lines.add(line.split("\t", 4));
+                }
+            }
+
+            //check the folder is the build the patch was made from
+            for (String[] line : lines) {
+                Path target = resolve(directory, line[3]);
+                boolean exists = Files.isRegularFile(target);
+                if (line[0].equals("A") ? exists && !Hashing.hash(target).equals(line[1])
+                        : !exists || !Hashing.hash(target).equals(line[2])) {
+                    throw new IOException("File " + line[3] + " in " + directory + " does not match the patch " + patch);
+                }
+            }
+
+            int added = 0, changed = 0, deleted = 0;
+            long bytes = 0;
+            for (String[] line : lines) {
+                Path target = resolve(directory, line[3]);
+                if (line[0].equals("D")) {
+                    Files.deleteIfExists(target);
+                    deleteEmptyParents(directory, target.getParent());
+                    deleted++;
+                    continue;
+                }
+
+                ZipEntry entry = zip.getEntry(FILES + line[3]);
+                if (entry == null) throw new IOException("Patch " + patch + " is missing " + line[3]);
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), ".patch", ".tmp");
+                try {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        bytes += Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    if (!Hashing.hash(temp).equals(line[1])) throw new IOException("Patch " + patch + " has a corrupt " + line[3]);
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                if (line[0].equals("A")) added++;
+                else changed++;
+            }
+            return new DeltaResult(patch, added, changed, deleted, bytes);
+        }
+    }
+
+    /**
+     * Hashes every file in a folder, in parallel
+     *
+     * @param directory the folder
+     * @return the snapshot of the folder, keyed by '/' separated paths
+     * @throws IOException if the folder could not be read
+     * */
+    static Ledger snapshot(Path directory) throws IOException {
+        Ledger snapshot = new Ledger();
+        if (!Files.isDirectory(directory)) return snapshot;
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        try {
+            files.parallelStream().forEach(file -> {
+                try {
+                    String path = directory.relativize(file).toString().replace(File.separatorChar, '/');
+                    snapshot.put(path, new Ledger.Entry(Hashing.hash(file), Files.size(file), 0));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Resolves a path from a patch, refusing paths that leave the folder
+     * */
+    private static Path resolve(Path directory, String path) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        Path target = root.resolve(path).normalize();
+        if (!target.startsWith(root) || target.equals(root)) throw new IOException("Invalid path in patch: " + path);
+        return target;
+    }
+
+    private static void deleteEmptyParents(Path directory, Path folder) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        Path current = folder.toAbsolutePath().normalize();
+        while (current.startsWith(root) && !current.equals(root)) {
+            try (Stream<Path> list = Files.list(current)) {
+                if (list.findAny().isPresent()) return;
+            }
+            Files.delete(current);
+            current = current.getParent();
+        }
+    }
+}
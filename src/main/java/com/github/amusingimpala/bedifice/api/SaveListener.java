@@ -0,0 +1,80 @@
+package com.github.amusingimpala.bedifice.api;
+
+/**
+ * Listens to a pack being saved, for timing and measuring saves.
+ * Methods may be called from several threads at once, as a pack's files are written concurrently.
+ * The same measurements are also recorded as JFR events, under the bEdifice category
+ * */
+public interface SaveListener {
+
+    /**
+     * Called once a phase of a save is finished, after every file of the pack has been saved.
+     * Files written in the background count towards the phase that submitted them, so phases may overlap
+     *
+     * @param packName the name of the pack
+     * @param phase the phase
+     * @param nanos the time from entering the phase until it was left and every file submitted during it was saved, in nanoseconds
+     * @param bytes the number of bytes of the files saved during the phase, including skipped files
+     * */
+    default void phaseSaved(String packName, Phase phase, long nanos, long bytes) {
+    }
+
+    /**
+     * Called once a file of the pack has been saved
+     *
+     * @param packName the name of the pack
+     * @param path path of the file in the pack
+     * @param nanos how long saving the file took, in nanoseconds
+     * @param bytes the number of bytes of the file, whether written or skipped
+     * */
+    default void fileSaved(String packName, String path, long nanos, long bytes) {
+    }
+
+    /**
+     * Called once a pack has been saved
+     *
+     * @param result the result of the save
+     * @param nanos how long the whole save took, in nanoseconds
+     * */
+    default void packSaved(SaveResult result, long nanos) {
+    }
+
+    /**
+     * Called instead of {@link #packSaved(SaveResult, long)} when a cached pack was unchanged, so was not saved
+     *
+     * @param result the result of the skipped save, with every file of the last save counted as skipped
+     * @param nanos how long checking the pack took, in nanoseconds
+     * */
+    default void packSkipped(SaveResult result, long nanos) {
+    }
+
+    /**
+     * The phases of a save, in order
+     * */
+    enum Phase {
+        /**
+         * Checking the build cache, and preparing the output, such as deleting the old output folder
+         * */
+        PREPARE,
+        /**
+         * Finding, optimizing, and copying included resources
+         * */
+        INCLUDES,
+        /**
+         * Rendering generated textures
+         * */
+        TEXTURES,
+        /**
+         * Serializing the manifest
+         * */
+        MANIFEST,
+        /**
+         * Saving the child class's files, such as skins.json and langs
+         * */
+        ON_SAVE,
+        /**
+         * Waiting for files still being written, and closing the output
+         * */
+        FINISH
+    }
+}
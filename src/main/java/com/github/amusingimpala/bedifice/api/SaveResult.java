@@ -0,0 +1,18 @@
+package com.github.amusingimpala.bedifice.api;
+
+import java.nio.file.Path;
+
+/**
+ * Summary of a single pack save
+ *
+ * @param packName the name of the saved pack
+ * @param output where the pack was saved to
+ * @param filesWritten the number of files written
+ * @param filesSkipped the number of files left untouched because they were already up to date
+ * @param filesDeleted the number of stale files deleted
+ * @param bytesWritten the number of bytes written
+ * @param bytesSkipped the number of bytes that did not need to be written
+ * */
+public record SaveResult(String packName, Path output, int filesWritten, int filesSkipped, int filesDeleted,
+                         long bytesWritten, long bytesSkipped) {
+}
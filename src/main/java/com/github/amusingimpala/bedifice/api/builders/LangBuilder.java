@@ -1,15 +1,23 @@
 package com.github.amusingimpala.bedifice.api.builders;
 
-import java.util.HashMap;
+import com.github.amusingimpala.bedifice.impl.LangReader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.TreeMap;
 
 /**
  * Class for building locales that when saved follow the format of:
  * key=translation
+ * Entries are always saved sorted by key, so the same translations always give the same file
  * */
 public class LangBuilder {
 
-    private final Map<String, String> translations = new HashMap<>();
+    private final Map<String, String> translations = new TreeMap<>();
     private final String locale;
 
     /**
@@ -42,6 +50,54 @@ public class LangBuilder {
         return this;
     }
 
+    /**
+     * Adds many Translations at once
+     *
+     * @param translations the translations, keyed by their keys
+     * @return the current LangBuilder (this)
+     * */
+    public LangBuilder translations(Map<String, String> translations) {
+        this.translations.putAll(translations);
+        return this;
+    }
+
+    /**
+     * Imports Translations from a file. Every entry of a .lang file is imported,
+     * while from a .csv or .tsv file only the column whose header is this LangBuilder's locale is imported.
+     * CSV and TSV files need a header row of key followed by locales, for example:
+     * key,en_US,de_DE
+     *
+     * @param file the .lang, .csv, or .tsv file to import
+     * @return the current LangBuilder (this)
+     * */
+    public LangBuilder translations(Path file) {
+        try {
+            if (file.getFileName().toString().endsWith(".lang")) {
+                LangReader.readLang(file, this);
+            } else {
+                boolean[] found = {false};
+                LangReader.readTable(file, column -> {
+                    if (!column.equals(locale)) return null;
+                    found[0] = true;
+                    return this;
+                });
+                if (!found[0]) throw new MissingFormatArgumentException("Missing " + locale + " column in " + file + "!");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the Translations added so far
+     *
+     * @return an unmodifiable view of the translations, sorted by key
+     * */
+    public Map<String, String> getTranslations() {
+        return Collections.unmodifiableMap(this.translations);
+    }
+
     /**
      * Assembles the LangBuilder into a String, with entries in the format of:
      * key=translation
@@ -50,16 +106,44 @@ public class LangBuilder {
      * @return the assembled lang String, ready for saving to a .lang file
      * */
     public String assemble() {
-        StringBuilder file = new StringBuilder();
+        StringWriter file = new StringWriter();
+        try {
+            this.write(file);
+        } catch (IOException e) {
+            //StringWriter never throws
+            throw new UncheckedIOException(e);
+        }
+        return file.toString();
+    }
 
+    /**
+     * Writes the lang file to the stream as UTF-8, one entry at a time, without assembling the whole file in memory.
+     * The stream is flushed but not closed
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     * */
+    public void write(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.write(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the lang file to the writer, with entries in the format of:
+     * key=translation
+     * sorted by key and separated by newline (\n)
+     *
+     * @param writer the writer to write to
+     * @throws IOException if writing fails
+     * */
+    public void write(Writer writer) throws IOException {
         for (Map.Entry<String, String> entry : translations.entrySet()) {
-            file.append(entry.getKey());
-            file.append("=");
-            file.append(entry.getValue());
-            file.append("\n");
+            writer.write(entry.getKey());
+            writer.write('=');
+            writer.write(entry.getValue());
+            writer.write('\n');
         }
-        file.append("\n");
-
-        return file.toString();
+        writer.write('\n');
     }
 }
@@ -3,28 +3,29 @@ package com.github.amusingimpala.bedifice.api.builders;
 import com.github.amusingimpala.bedifice.api.util.FormatCodes;
 import com.github.amusingimpala.bedifice.api.util.Processor;
 import com.github.amusingimpala.bedifice.api.util.Vector3;
-import com.github.amusingimpala.bedifice.impl.Builder;
+import com.github.amusingimpala.bedifice.impl.StreamingBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
-import java.util.Locale;
-import java.util.MissingFormatArgumentException;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.*;
 
 /**
- * Builder class for manifest.json
+ * Builder class for manifest.json, which describes the pack: its name, version and UUID in the header, what it
+ * contains in its modules, the packs it needs, and the subpacks players can choose between
  * */
-//TODO: docs and subpacks
 @SuppressWarnings({"OptionalUsedAsFieldOrParameterType", "unused", "UnusedReturnValue"})
-public class ManifestBuilder implements Builder {
+public class ManifestBuilder implements StreamingBuilder {
 
     private int formatVersion = 1;
-    private Optional<JsonObject> header = Optional.empty();
-    private final JsonArray modules = new JsonArray();
-    private final JsonArray dependencies = new JsonArray();
-    private final JsonArray capabilities = new JsonArray();
-    private Optional<JsonObject> metaData = Optional.empty();
+    private Optional<HeaderBuilder> header = Optional.empty();
+    private final List<Module> modules = new ArrayList<>();
+    private final List<Dependency> dependencies = new ArrayList<>();
+    private final List<CapabilityType> capabilities = new ArrayList<>();
+    private final List<Subpack> subpacks = new ArrayList<>();
+    private Optional<MetaDataBuilder> metaData = Optional.empty();
 
     /**
      * Sets the format version. Default it '1'
@@ -46,7 +47,9 @@ public class ManifestBuilder implements Builder {
      * @return the current ManifestBuilder (this)
      * */
     public ManifestBuilder header(String name, Vector3 version, Processor<HeaderBuilder> builder) {
-        this.header = Optional.of(builder.process(new HeaderBuilder(name, version)).build());
+        HeaderBuilder header = builder.process(new HeaderBuilder(name, version));
+        header.uuid.orElseThrow(() -> new MissingFormatArgumentException("Missing Pack UUID!"));
+        this.header = Optional.of(header);
         return this;
     }
 
@@ -105,20 +108,11 @@ public class ManifestBuilder implements Builder {
      * @return the current ManifestBuilder (this)
      * */
     public ManifestBuilder module(ModuleType type, Vector3 version, String uuid, String description, String entry) {
-        JsonObject moduleRoot = new JsonObject();
-
-        moduleRoot.add("type", new JsonPrimitive(type.name().toLowerCase(Locale.ROOT)));
-        moduleRoot.add("uuid", new JsonPrimitive(uuid));
-        moduleRoot.add("version", version.toJson());
-        moduleRoot.add("description", new JsonPrimitive(description));
-        if (entry != null) {
-            if (type != ModuleType.JAVASCRIPT) {
-                throw new MissingFormatArgumentException("Cannot add an entry to a non Javascript module!");
-            }
-            moduleRoot.add("entry", new JsonPrimitive(entry));
+        if (entry != null && type != ModuleType.JAVASCRIPT) {
+            throw new MissingFormatArgumentException("Cannot add an entry to a non Javascript module!");
         }
 
-        modules.add(moduleRoot);
+        modules.add(new Module(type, version, uuid, description, entry));
         return this;
     }
 
@@ -131,12 +125,7 @@ public class ManifestBuilder implements Builder {
      * @return the current ManifestBuilder (this)
      * */
     public ManifestBuilder dependency(String uuid, Vector3 version) {
-        JsonObject dependencyRoot = new JsonObject();
-
-        dependencyRoot.add("uuid", new JsonPrimitive(uuid));
-        dependencyRoot.add("version", version.toJson());
-
-        dependencies.add(dependencyRoot);
+        dependencies.add(new Dependency(uuid, version));
         return this;
     }
 
@@ -148,7 +137,23 @@ public class ManifestBuilder implements Builder {
      * @return the current ManifestBuilder (this)
      * */
     public ManifestBuilder capability(CapabilityType type) {
-        capabilities.add(new JsonPrimitive(type.name().toLowerCase(Locale.ROOT)));
+        capabilities.add(type);
+        return this;
+    }
+
+    /**
+     * Adds a subpack, a variant of the pack players can pick in the pack's settings, such as lower resolution textures.
+     * The subpack's files are in subpacks/[folderName], and replace the pack's files with the same paths.
+     * Subpacks are listed in the order added, which should be from the lowest memory tier to the highest
+     *
+     * @param folderName the folder of the subpack, in the subpacks folder
+     * @param name the name shown to players
+     * @param memoryTier the memory a device needs to pick the subpack, in steps of 0.25 GB. 0 allows every device
+     * @return the current ManifestBuilder (this)
+     * */
+    public ManifestBuilder subpack(String folderName, String name, int memoryTier) {
+        if (memoryTier < 0) throw new IllegalArgumentException("Memory tier cannot be negative!");
+        subpacks.add(new Subpack(folderName, name, memoryTier));
         return this;
     }
 
@@ -160,10 +165,35 @@ public class ManifestBuilder implements Builder {
      * @return the current ManifestBuilder (this)
      * */
     public ManifestBuilder metadata(Processor<MetaDataBuilder> proc) {
-        this.metaData = Optional.of(proc.process(new MetaDataBuilder()).build());
+        this.metaData = Optional.of(proc.process(new MetaDataBuilder()));
         return this;
     }
 
+    /**
+     * @return the UUID of the pack, if the header has been added
+     * */
+    public Optional<String> getUuid() {
+        return header.flatMap(header -> header.uuid);
+    }
+
+    /**
+     * @return the UUIDs of the pack's modules, in the order they were added
+     * */
+    public List<String> getModuleUuids() {
+        List<String> uuids = new ArrayList<>(modules.size());
+        for (Module module : modules) uuids.add(module.uuid());
+        return uuids;
+    }
+
+    /**
+     * @return the UUIDs of the packs depended upon, in the order they were added
+     * */
+    public List<String> getDependencies() {
+        List<String> uuids = new ArrayList<>(dependencies.size());
+        for (Dependency dependency : dependencies) uuids.add(dependency.uuid());
+        return uuids;
+    }
+
     /**
      * @return the built manifest, ready to be saved.
      * */
@@ -172,18 +202,152 @@ public class ManifestBuilder implements Builder {
         JsonObject root = new JsonObject();
 
         root.add("format_version", new JsonPrimitive(formatVersion));
-        root.add("header", header.orElseThrow(() -> new MissingFormatArgumentException("Missing header object!")));
+        root.add("header", header.orElseThrow(() -> new MissingFormatArgumentException("Missing header object!")).build());
+
+        JsonArray modules = new JsonArray();
+        for (Module module : this.modules) modules.add(module.toJson());
         root.add("modules", modules);
+
+        JsonArray dependencies = new JsonArray();
+        for (Dependency dependency : this.dependencies) dependencies.add(dependency.toJson());
         root.add("dependencies", dependencies);
-        metaData.ifPresent(md -> root.add("metadata", md));
+
+        if (!capabilities.isEmpty()) {
+            JsonArray capabilities = new JsonArray();
+            for (CapabilityType capability : this.capabilities) capabilities.add(capability.name().toLowerCase(Locale.ROOT));
+            root.add("capabilities", capabilities);
+        }
+
+        if (!subpacks.isEmpty()) {
+            JsonArray subpacks = new JsonArray();
+            for (Subpack subpack : this.subpacks) subpacks.add(subpack.toJson());
+            root.add("subpacks", subpacks);
+        }
+
+        metaData.ifPresent(md -> root.add("metadata", md.build()));
 
         return root;
     }
 
+    /**
+     * Writes the manifest straight to the writer, ready to be saved.
+     * */
+    @Override
+    public void write(JsonWriter writer) throws IOException {
+        HeaderBuilder header = this.header.orElseThrow(() -> new MissingFormatArgumentException("Missing header object!"));
+
+        writer.beginObject();
+        writer.name("format_version").value(formatVersion);
+        writer.name("header");
+        header.write(writer);
+
+        writer.name("modules").beginArray();
+        for (Module module : modules) module.write(writer);
+        writer.endArray();
+
+        writer.name("dependencies").beginArray();
+        for (Dependency dependency : dependencies) dependency.write(writer);
+        writer.endArray();
+
+        if (!capabilities.isEmpty()) {
+            writer.name("capabilities").beginArray();
+            for (CapabilityType capability : capabilities) writer.value(capability.name().toLowerCase(Locale.ROOT));
+            writer.endArray();
+        }
+
+        if (!subpacks.isEmpty()) {
+            writer.name("subpacks").beginArray();
+            for (Subpack subpack : subpacks) subpack.write(writer);
+            writer.endArray();
+        }
+
+        if (metaData.isPresent()) {
+            writer.name("metadata");
+            metaData.get().write(writer);
+        }
+        writer.endObject();
+    }
+
+    /**
+     * A module of the pack
+     * */
+    private record Module(ModuleType type, Vector3 version, String uuid, String description, String entry) {
+
+        private JsonObject toJson() {
+            JsonObject moduleRoot = new JsonObject();
+
+            moduleRoot.add("type", new JsonPrimitive(type.name().toLowerCase(Locale.ROOT)));
+            moduleRoot.add("uuid", new JsonPrimitive(uuid));
+            moduleRoot.add("version", version.toJson());
+            moduleRoot.add("description", new JsonPrimitive(description));
+            if (entry != null) moduleRoot.add("entry", new JsonPrimitive(entry));
+
+            return moduleRoot;
+        }
+
+        private void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            writer.name("type").value(type.name().toLowerCase(Locale.ROOT));
+            writer.name("uuid").value(uuid);
+            writer.name("version");
+            version.write(writer);
+            writer.name("description").value(description);
+            if (entry != null) writer.name("entry").value(entry);
+            writer.endObject();
+        }
+    }
+
+    /**
+     * A pack depended upon
+     * */
+    private record Dependency(String uuid, Vector3 version) {
+
+        private JsonObject toJson() {
+            JsonObject dependencyRoot = new JsonObject();
+
+            dependencyRoot.add("uuid", new JsonPrimitive(uuid));
+            dependencyRoot.add("version", version.toJson());
+
+            return dependencyRoot;
+        }
+
+        private void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            writer.name("uuid").value(uuid);
+            writer.name("version");
+            version.write(writer);
+            writer.endObject();
+        }
+    }
+
+    /**
+     * A variant of the pack players can pick
+     * */
+    private record Subpack(String folderName, String name, int memoryTier) {
+
+        private JsonObject toJson() {
+            JsonObject subpackRoot = new JsonObject();
+
+            subpackRoot.add("folder_name", new JsonPrimitive(folderName));
+            subpackRoot.add("name", new JsonPrimitive(name));
+            subpackRoot.add("memory_tier", new JsonPrimitive(memoryTier));
+
+            return subpackRoot;
+        }
+
+        private void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            writer.name("folder_name").value(folderName);
+            writer.name("name").value(name);
+            writer.name("memory_tier").value(memoryTier);
+            writer.endObject();
+        }
+    }
+
     /**
      * Builder for the header section of the Manifest.json
      * */
-    public static class HeaderBuilder implements Builder {
+    public static class HeaderBuilder implements StreamingBuilder {
 
         private final String name;
         private final Vector3 version;
@@ -282,14 +446,40 @@ public class ManifestBuilder implements Builder {
 
             return root;
         }
+
+        /**
+         * Writes the header section straight to the writer,
+         * should only be called by {@link ManifestBuilder}
+         * */
+        @Override
+        public void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            writer.name("name").value(name);
+            writer.name("version");
+            version.write(writer);
+
+            writer.name("description").value(description);
+            writer.name("uuid").value(uuid.orElseThrow(() -> new MissingFormatArgumentException("Missing Pack UUID!")));
+
+            if (minEngineVersion.isPresent()) {
+                writer.name("min_engine_version");
+                minEngineVersion.get().write(writer);
+            }
+            if (baseGameVersion.isPresent()) {
+                writer.name("base_game_version");
+                baseGameVersion.get().write(writer);
+            }
+            if (lockTemplateOptions.isPresent()) writer.name("lock_template_options").value(lockTemplateOptions.get());
+            writer.endObject();
+        }
     }
 
     /**
      * Builder for the Manifest Metadata
      * */
-    public static class MetaDataBuilder implements Builder {
+    public static class MetaDataBuilder implements StreamingBuilder {
 
-        private final JsonArray authors = new JsonArray();
+        private final List<String> authors = new ArrayList<>();
         private Optional<String> license = Optional.empty();
         private Optional<String> url = Optional.empty();
 
@@ -300,9 +490,7 @@ public class ManifestBuilder implements Builder {
          * @return the current MetaDataBuilder (this)
          * */
         public MetaDataBuilder authors(String... authors) {
-            for (String author : authors) {
-                this.authors.add(new JsonPrimitive(author));
-            }
+            this.authors.addAll(Arrays.asList(authors));
             return this;
         }
 
@@ -320,7 +508,7 @@ public class ManifestBuilder implements Builder {
          * @return the current MetaDataBuilder (this)
          * */
         public MetaDataBuilder license(String license) {
-            if (!license.isEmpty()) throw new MissingFormatArgumentException("Tried to add license, but license already existed!");
+            if (this.license.isPresent()) throw new MissingFormatArgumentException("Tried to add license, but license already existed!");
             this.license = Optional.of(license);
             return this;
         }
@@ -346,12 +534,29 @@ public class ManifestBuilder implements Builder {
         public JsonObject build() {
             JsonObject root = new JsonObject();
 
+            JsonArray authors = new JsonArray();
+            for (String author : this.authors) authors.add(author);
             root.add("authors", authors);
             license.ifPresent(lic -> root.add("license", new JsonPrimitive(lic)));
             url.ifPresent(url -> root.add("url", new JsonPrimitive(url)));
 
             return root;
         }
+
+        /**
+         * Writes the metadata straight to the writer
+         * Should only be called by {@link ManifestBuilder}
+         * */
+        @Override
+        public void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            writer.name("authors").beginArray();
+            for (String author : authors) writer.value(author);
+            writer.endArray();
+            if (license.isPresent()) writer.name("license").value(license.get());
+            if (url.isPresent()) writer.name("url").value(url.get());
+            writer.endObject();
+        }
     }
 
     /**
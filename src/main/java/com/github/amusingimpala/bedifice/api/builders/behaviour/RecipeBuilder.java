@@ -1,43 +1,85 @@
 package com.github.amusingimpala.bedifice.api.builders.behaviour;
 
 import com.github.amusingimpala.bedifice.api.util.Identifier;
-import com.github.amusingimpala.bedifice.impl.Builder;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.impl.StreamingBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
-import java.util.Locale;
-import java.util.MissingFormatArgumentException;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.*;
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-public class RecipeBuilder implements Builder {
+public class RecipeBuilder implements StreamingBuilder {
 
     private String formatVersion = "1.12";
-    private Optional<JsonObject> recipeData = Optional.empty();
+    private Optional<RecipeDataBuilder> recipeData = Optional.empty();
 
     public RecipeBuilder formatVersion(String version) {
         this.formatVersion = version;
         return this;
     }
 
+    public RecipeBuilder data(RecipeType type, Identifier id, Processor<RecipeDataBuilder> proc) {
+        this.recipeData = Optional.of(proc.process(new RecipeDataBuilder(type, id)));
+        return this;
+    }
+
+    /**
+     * @return the identifier of the recipe
+     * */
+    public Identifier getIdentifier() {
+        return this.getData().getIdentifier();
+    }
+
+    /**
+     * @return the recipe's data
+     * */
+    public RecipeDataBuilder getData() {
+        return this.recipeData.orElseThrow(() -> new MissingFormatArgumentException("Missing recipe data!"));
+    }
+
     @Override
     public JsonObject build() {
         JsonObject root = new JsonObject();
 
         root.add("format_version", new JsonPrimitive(formatVersion));
-        JsonObject recipeData = this.recipeData.orElseThrow(() -> new MissingFormatArgumentException("Missing recipe data!"));
-        root.add("minecraft:"+recipeData.remove("type").getAsString(), recipeData);
+        RecipeDataBuilder recipeData = this.recipeData.orElseThrow(() -> new MissingFormatArgumentException("Missing recipe data!"));
+        root.add(recipeData.getTypeKey(), recipeData.build());
 
         return root;
     }
 
-    public static class RecipeDataBuilder implements Builder {
+    @Override
+    public void write(JsonWriter writer) throws IOException {
+        RecipeDataBuilder recipeData = this.recipeData.orElseThrow(() -> new MissingFormatArgumentException("Missing recipe data!"));
+
+        writer.beginObject();
+        writer.name("format_version").value(formatVersion);
+        writer.name(recipeData.getTypeKey());
+        recipeData.write(writer);
+        writer.endObject();
+    }
+
+    public static class RecipeDataBuilder implements StreamingBuilder {
 
         private final RecipeType type;
         private final Identifier id;
-        private JsonArray tags = new JsonArray();
+        private final List<String> tags = new ArrayList<>();
         private Optional<Integer> priority = Optional.empty();
+        //furnace
+        private Optional<ItemStack> input = Optional.empty();
+        private Optional<ItemStack> output = Optional.empty();
+        //shaped
+        private final List<String> pattern = new ArrayList<>();
+        private final Map<Character, ItemStack> key = new LinkedHashMap<>();
+        //shapeless
+        private final List<ItemStack> ingredients = new ArrayList<>();
+        //shaped and shapeless
+        private Optional<ItemStack> result = Optional.empty();
 
         public RecipeDataBuilder(RecipeType type, Identifier id) {
             this.type = type;
@@ -45,7 +87,7 @@ public class RecipeBuilder implements Builder {
         }
 
         public RecipeDataBuilder tags(String... tags) {
-            for (String tag : tags) this.tags.add(tag);
+            this.tags.addAll(Arrays.asList(tags));
             return this;
         }
 
@@ -54,20 +96,244 @@ public class RecipeBuilder implements Builder {
             return this;
         }
 
+        /**
+         * Sets the item smelted by a furnace recipe
+         *
+         * @param input the item put in the furnace
+         * @return the current RecipeDataBuilder (this)
+         * */
+        public RecipeDataBuilder input(ItemStack input) {
+            this.input = Optional.of(input);
+            return this;
+        }
+
+        /**
+         * Sets the item a furnace recipe smelts into
+         *
+         * @param output the item taken out of the furnace
+         * @return the current RecipeDataBuilder (this)
+         * */
+        public RecipeDataBuilder output(ItemStack output) {
+            this.output = Optional.of(output);
+            return this;
+        }
+
+        /**
+         * Sets the pattern of a shaped recipe, with a row per string and a character per slot.
+         * Spaces are empty slots, every other character needs a {@link #key(char, ItemStack)}
+         *
+         * @param rows the rows of the pattern, from top to bottom
+         * @return the current RecipeDataBuilder (this)
+         * */
+        public RecipeDataBuilder pattern(String... rows) {
+            this.pattern.clear();
+            this.pattern.addAll(Arrays.asList(rows));
+            return this;
+        }
+
+        /**
+         * Sets the item a character of a shaped recipe's pattern stands for
+         *
+         * @param symbol the character in the pattern
+         * @param item the item
+         * @return the current RecipeDataBuilder (this)
+         * */
+        public RecipeDataBuilder key(char symbol, ItemStack item) {
+            this.key.put(symbol, item);
+            return this;
+        }
+
+        /**
+         * Adds ingredients to a shapeless recipe
+         *
+         * @param ingredients the items needed
+         * @return the current RecipeDataBuilder (this)
+         * */
+        public RecipeDataBuilder ingredients(ItemStack... ingredients) {
+            this.ingredients.addAll(Arrays.asList(ingredients));
+            return this;
+        }
+
+        /**
+         * Sets the item crafted by a shaped or shapeless recipe
+         *
+         * @param result the item crafted
+         * @return the current RecipeDataBuilder (this)
+         * */
+        public RecipeDataBuilder result(ItemStack result) {
+            this.result = Optional.of(result);
+            return this;
+        }
+
+        /**
+         * @return the identifier of the recipe
+         * */
+        public Identifier getIdentifier() {
+            return this.id;
+        }
+
+        /**
+         * @return the type of the recipe
+         * */
+        public RecipeType getType() {
+            return this.type;
+        }
+
+        /**
+         * @return the tags of the recipe, such as the crafting table or furnace it is made in
+         * */
+        public List<String> getTags() {
+            return Collections.unmodifiableList(this.tags);
+        }
+
+        /**
+         * @return the item smelted by a furnace recipe
+         * */
+        public Optional<ItemStack> getInput() {
+            return this.input;
+        }
+
+        /**
+         * @return the pattern of a shaped recipe, from top to bottom
+         * */
+        public List<String> getPattern() {
+            return Collections.unmodifiableList(this.pattern);
+        }
+
+        /**
+         * @return the items the characters of a shaped recipe's pattern stand for
+         * */
+        public Map<Character, ItemStack> getKey() {
+            return Collections.unmodifiableMap(this.key);
+        }
+
+        /**
+         * @return the ingredients of a shapeless recipe
+         * */
+        public List<ItemStack> getIngredients() {
+            return Collections.unmodifiableList(this.ingredients);
+        }
+
+        /**
+         * @return the key the recipe data is stored under, such as minecraft:recipe_shaped
+         * */
+        public String getTypeKey() {
+            return "minecraft:" + type.name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public JsonObject build() {
+            this.validate();
             JsonObject root = new JsonObject();
 
-            root.add("type", new JsonPrimitive(type.name().toLowerCase(Locale.ROOT)));
-
             JsonObject desc = new JsonObject();
             desc.add("identifier", new JsonPrimitive(id.toString()));
             root.add("description", desc);
 
+            if (!tags.isEmpty()) {
+                JsonArray tags = new JsonArray();
+                for (String tag : this.tags) tags.add(tag);
+                root.add("tags", tags);
+            }
             priority.ifPresent(p -> root.add("priority", new JsonPrimitive(p)));
 
+            switch (type) {
+                case RECIPE_FURNACE -> {
+                    root.add("input", input.get().toJson());
+                    root.add("output", output.get().toJson());
+                }
+                case RECIPE_SHAPED -> {
+                    JsonArray pattern = new JsonArray();
+                    for (String row : this.pattern) pattern.add(row);
+                    root.add("pattern", pattern);
+                    JsonObject key = new JsonObject();
+                    this.key.forEach((symbol, item) -> key.add(String.valueOf(symbol), item.toJson()));
+                    root.add("key", key);
+                    root.add("result", result.get().toJson());
+                }
+                case RECIPE_SHAPELESS -> {
+                    JsonArray ingredients = new JsonArray();
+                    for (ItemStack ingredient : this.ingredients) ingredients.add(ingredient.toJson());
+                    root.add("ingredients", ingredients);
+                    root.add("result", result.get().toJson());
+                }
+            }
+
             return root;
         }
+
+        @Override
+        public void write(JsonWriter writer) throws IOException {
+            this.validate();
+            writer.beginObject();
+            writer.name("description").beginObject();
+            writer.name("identifier").value(id.toString());
+            writer.endObject();
+
+            if (!tags.isEmpty()) {
+                writer.name("tags").beginArray();
+                for (String tag : tags) writer.value(tag);
+                writer.endArray();
+            }
+            if (priority.isPresent()) writer.name("priority").value(priority.get());
+
+            switch (type) {
+                case RECIPE_FURNACE -> {
+                    writer.name("input");
+                    input.get().write(writer);
+                    writer.name("output");
+                    output.get().write(writer);
+                }
+                case RECIPE_SHAPED -> {
+                    writer.name("pattern").beginArray();
+                    for (String row : pattern) writer.value(row);
+                    writer.endArray();
+                    writer.name("key").beginObject();
+                    for (Map.Entry<Character, ItemStack> entry : key.entrySet()) {
+                        writer.name(String.valueOf(entry.getKey()));
+                        entry.getValue().write(writer);
+                    }
+                    writer.endObject();
+                    writer.name("result");
+                    result.get().write(writer);
+                }
+                case RECIPE_SHAPELESS -> {
+                    writer.name("ingredients").beginArray();
+                    for (ItemStack ingredient : ingredients) ingredient.write(writer);
+                    writer.endArray();
+                    writer.name("result");
+                    result.get().write(writer);
+                }
+            }
+            writer.endObject();
+        }
+
+        /**
+         * Checks the recipe has everything its type needs
+         * */
+        private void validate() {
+            switch (type) {
+                case RECIPE_FURNACE -> {
+                    if (input.isEmpty()) throw new MissingFormatArgumentException("Missing furnace recipe input for " + id + "!");
+                    if (output.isEmpty()) throw new MissingFormatArgumentException("Missing furnace recipe output for " + id + "!");
+                }
+                case RECIPE_SHAPED -> {
+                    if (pattern.isEmpty()) throw new MissingFormatArgumentException("Missing shaped recipe pattern for " + id + "!");
+                    for (String row : pattern) {
+                        for (char symbol : row.toCharArray()) {
+                            if (symbol != ' ' && !key.containsKey(symbol)) {
+                                throw new MissingFormatArgumentException("Missing key '" + symbol + "' in shaped recipe " + id + "!");
+                            }
+                        }
+                    }
+                    if (result.isEmpty()) throw new MissingFormatArgumentException("Missing shaped recipe result for " + id + "!");
+                }
+                case RECIPE_SHAPELESS -> {
+                    if (ingredients.isEmpty()) throw new MissingFormatArgumentException("Missing shapeless recipe ingredients for " + id + "!");
+                    if (result.isEmpty()) throw new MissingFormatArgumentException("Missing shapeless recipe result for " + id + "!");
+                }
+            }
+        }
     }
 
     //Todo: brewing
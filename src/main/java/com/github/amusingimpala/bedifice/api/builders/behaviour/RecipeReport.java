@@ -0,0 +1,49 @@
+package com.github.amusingimpala.bedifice.api.builders.behaviour;
+
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Problems found among a pack's recipes
+ *
+ * @param duplicates identifiers used by more than one recipe, with how many recipes use each
+ * @param conflicts groups of recipes made from the same ingredients in the same place, so only one of them can be made
+ * */
+public record RecipeReport(Map<Identifier, Integer> duplicates, List<Conflict> conflicts) {
+
+    /**
+     * @return whether no problems were found
+     * */
+    public boolean isClean() {
+        return duplicates.isEmpty() && conflicts.isEmpty();
+    }
+
+    /**
+     * Formats the report, a line per problem
+     *
+     * @return the formatted report, empty if there are no problems
+     * */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        duplicates.forEach((id, count) -> report.append("Duplicate recipe identifier ").append(id)
+                .append(" used by ").append(count).append(" recipes\n"));
+        for (Conflict conflict : conflicts) {
+            report.append("Ambiguous recipes ").append(conflict.recipes())
+                    .append(" in ").append(conflict.tag().isEmpty() ? "untagged recipes" : conflict.tag())
+                    .append(": ").append(conflict.ingredients()).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Recipes that can't be told apart
+     *
+     * @param tag the tag the recipes share, such as crafting_table
+     * @param ingredients the normalized ingredients the recipes share
+     * @param recipes the identifiers of the recipes
+     * */
+    public record Conflict(String tag, String ingredients, List<Identifier> recipes) {
+    }
+}
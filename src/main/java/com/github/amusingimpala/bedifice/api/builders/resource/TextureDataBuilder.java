@@ -0,0 +1,141 @@
+package com.github.amusingimpala.bedifice.api.builders.resource;
+
+import com.github.amusingimpala.bedifice.impl.StreamingBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * For building the terrain_texture.json and item_texture.json files,
+ * which give the textures of blocks and items short names to be referred to by
+ * */
+@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+public class TextureDataBuilder implements StreamingBuilder {
+
+    private final String packName;
+    private final String atlasName;
+    private final Map<String, List<String>> textures = new LinkedHashMap<>();
+    private Optional<Integer> padding = Optional.empty();
+    private Optional<Integer> mipLevels = Optional.empty();
+
+    /**
+     * Creates a TextureDataBuilder
+     *
+     * @param packName Name of the pack
+     * @param atlasName the atlas the game puts the textures in, atlas.terrain for blocks and atlas.items for items
+     * */
+    public TextureDataBuilder(String packName, String atlasName) {
+        this.packName = packName;
+        this.atlasName = atlasName;
+    }
+
+    /**
+     * Adds a texture, or replaces one with the same short name.
+     * Several paths give variations, one of which is picked for each block placed
+     *
+     * @param shortName the name blocks and items refer to the texture by
+     * @param paths the paths of the texture's images in the pack, without the extension, such as textures/blocks/dirt
+     * @return the current TextureDataBuilder (this)
+     * */
+    public TextureDataBuilder texture(String shortName, String... paths) {
+        if (paths.length == 0) throw new MissingFormatArgumentException("Missing texture path for " + shortName + "!");
+        this.textures.put(shortName, List.of(paths));
+        return this;
+    }
+
+    /**
+     * Sets the padding around each texture in the game's atlas, in pixels.
+     * Only used for terrain textures
+     *
+     * @param padding the padding, in pixels
+     * @return the current TextureDataBuilder (this)
+     * */
+    public TextureDataBuilder padding(int padding) {
+        this.padding = Optional.of(padding);
+        return this;
+    }
+
+    /**
+     * Sets how many mip levels the game makes of the atlas.
+     * Only used for terrain textures
+     *
+     * @param levels the number of mip levels
+     * @return the current TextureDataBuilder (this)
+     * */
+    public TextureDataBuilder mipLevels(int levels) {
+        this.mipLevels = Optional.of(levels);
+        return this;
+    }
+
+    /**
+     * Returns the textures added
+     *
+     * @return the paths of each texture, keyed by short name, in the order they were added
+     * */
+    public Map<String, List<String>> getTextures() {
+        return Collections.unmodifiableMap(this.textures);
+    }
+
+    /**
+     * Builds this object into a JsonObject ready for saving.
+     *
+     * @return the built texture data JsonObject
+     * */
+    @Override
+    public JsonObject build() {
+        JsonObject root = new JsonObject();
+
+        root.add("resource_pack_name", new JsonPrimitive(packName));
+        root.add("texture_name", new JsonPrimitive(atlasName));
+        padding.ifPresent(padding -> root.add("padding", new JsonPrimitive(padding)));
+        mipLevels.ifPresent(levels -> root.add("num_mip_levels", new JsonPrimitive(levels)));
+
+        JsonObject data = new JsonObject();
+        textures.forEach((name, paths) -> {
+            JsonObject texture = new JsonObject();
+            if (paths.size() == 1) {
+                texture.add("textures", new JsonPrimitive(paths.get(0)));
+            } else {
+                JsonArray variations = new JsonArray();
+                for (String path : paths) variations.add(path);
+                texture.add("textures", variations);
+            }
+            data.add(name, texture);
+        });
+        root.add("texture_data", data);
+
+        return root;
+    }
+
+    /**
+     * Writes the texture data straight to the writer, ready for saving.
+     * */
+    @Override
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("resource_pack_name").value(packName);
+        writer.name("texture_name").value(atlasName);
+        if (padding.isPresent()) writer.name("padding").value(padding.get());
+        if (mipLevels.isPresent()) writer.name("num_mip_levels").value(mipLevels.get());
+
+        writer.name("texture_data").beginObject();
+        for (Map.Entry<String, List<String>> texture : textures.entrySet()) {
+            writer.name(texture.getKey()).beginObject();
+            writer.name("textures");
+            if (texture.getValue().size() == 1) {
+                writer.value(texture.getValue().get(0));
+            } else {
+                writer.beginArray();
+                for (String path : texture.getValue()) writer.value(path);
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+}
@@ -1,17 +1,37 @@
 package com.github.amusingimpala.bedifice.api.builders.skins;
 
-import com.github.amusingimpala.bedifice.impl.Builder;
+import com.github.amusingimpala.bedifice.impl.StreamingBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * For building the skins.json file
+ * For building the skins.json file.
+ * Skins are kept in columns rather than an object each: their names and images in arrays, and their types and
+ * geometries as codes into a table of the distinct values, so packs of thousands of skins stay small
  * */
-public class SkinBuilder implements Builder {
+public class SkinBuilder implements StreamingBuilder {
+
+    /** The geometry of skins not given one, the classic player model */
+    public static final String DEFAULT_GEOMETRY = "geometry.humanoid.custom";
 
-    private final JsonPrimitive packName;
-    private final JsonArray skins = new JsonArray();
+    private final String packName;
+    private int count = 0;
+    private String[] names = new String[16];
+    //null where the image is the skin's name followed by .png
+    private String[] images = new String[16];
+    private int[] types = new int[16];
+    private int[] geometries = new int[16];
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
 
     /**
      * Creates a SkinBuilder with a given pack name
@@ -19,7 +39,7 @@ public class SkinBuilder implements Builder {
      * @param packName Name of the pack
      * */
     public SkinBuilder(String packName) {
-        this.packName = new JsonPrimitive(packName);
+        this.packName = packName;
     }
 
     /**
@@ -30,7 +50,7 @@ public class SkinBuilder implements Builder {
      * @return the current SkinBuilder (this)
      * */
     public SkinBuilder skin(String name) {
-        return this.skin(name, name + ".png");
+        return this.add(name, null, "free", DEFAULT_GEOMETRY);
     }
 
     /**
@@ -55,17 +75,60 @@ public class SkinBuilder implements Builder {
      * @return the current SkinBuilder (this)
      * */
     public SkinBuilder skin(String name, String imageName, String type) {
-        JsonObject skinRoot = new JsonObject();
+        return this.skin(name, imageName, type, DEFAULT_GEOMETRY);
+    }
 
-        skinRoot.add("localization_name", new JsonPrimitive(name));
-        skinRoot.add("geometry", new JsonPrimitive("geometry.humanoid.custom"));
-        skinRoot.add("texture", new JsonPrimitive(imageName));
-        skinRoot.add("type", new JsonPrimitive(type));
+    /**
+     * Adds a skin with its own geometry, such as geometry.humanoid.customSlim for the slim player model
+     * The skin type is only needed for marketplace partners
+     *
+     * @param name name of the skin for locale usage
+     * @param imageName name of the image, ending with '.png'
+     * @param type type of the skin
+     * @param geometry the geometry of the skin, from the pack's geometry file or the vanilla ones
+     * @return the current SkinBuilder (this)
+     * */
+    public SkinBuilder skin(String name, String imageName, String type, String geometry) {
+        return this.add(name, imageName.equals(name + ".png") ? null : imageName, type, geometry);
+    }
 
-        this.skins.add(skinRoot);
+    /**
+     * @return the number of skins added
+     * */
+    public int size() {
+        return count;
+    }
+
+    private SkinBuilder add(String name, String imageName, String type, String geometry) {
+        if (count == names.length) {
+            int capacity = count * 2;
+            names = Arrays.copyOf(names, capacity);
+            images = Arrays.copyOf(images, capacity);
+            types = Arrays.copyOf(types, capacity);
+            geometries = Arrays.copyOf(geometries, capacity);
+        }
+        names[count] = name;
+        images[count] = imageName;
+        types[count] = this.code(type);
+        geometries[count] = this.code(geometry);
+        count++;
         return this;
     }
 
+    private int code(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    private String image(int skin) {
+        return images[skin] == null ? names[skin] + ".png" : images[skin];
+    }
+
     /**
      * Builds this object into a JsonObject ready for saving.
      *
@@ -76,9 +139,46 @@ public class SkinBuilder implements Builder {
         JsonObject root = new JsonObject();
 
         root.add("geometry", new JsonPrimitive("skinpacks/skins.json"));
-        root.add("serialize_name", packName);
-        root.add("localization_name", packName);
+        JsonArray skins = new JsonArray();
+        //each distinct type and geometry only has the one primitive
+        JsonPrimitive[] primitives = new JsonPrimitive[values.size()];
+        for (int i = 0; i < primitives.length; i++) primitives[i] = new JsonPrimitive(values.get(i));
+        for (int i = 0; i < count; i++) {
+            JsonObject skinRoot = new JsonObject();
+
+            skinRoot.add("localization_name", new JsonPrimitive(names[i]));
+            skinRoot.add("geometry", primitives[geometries[i]]);
+            skinRoot.add("texture", new JsonPrimitive(this.image(i)));
+            skinRoot.add("type", primitives[types[i]]);
+
+            skins.add(skinRoot);
+        }
+        root.add("skins", skins);
+        root.add("serialize_name", new JsonPrimitive(packName));
+        root.add("localization_name", new JsonPrimitive(packName));
 
         return root;
     }
+
+    /**
+     * Writes the skins.json straight to the writer, ready for saving.
+     * */
+    @Override
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("geometry").value("skinpacks/skins.json");
+        writer.name("skins").beginArray();
+        for (int i = 0; i < count; i++) {
+            writer.beginObject();
+            writer.name("localization_name").value(names[i]);
+            writer.name("geometry").value(values.get(geometries[i]));
+            writer.name("texture").value(this.image(i));
+            writer.name("type").value(values.get(types[i]));
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.name("serialize_name").value(packName);
+        writer.name("localization_name").value(packName);
+        writer.endObject();
+    }
 }
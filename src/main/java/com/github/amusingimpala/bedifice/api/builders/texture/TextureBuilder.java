@@ -0,0 +1,381 @@
+package com.github.amusingimpala.bedifice.api.builders.texture;
+
+import com.github.amusingimpala.bedifice.api.util.Texture;
+import com.github.amusingimpala.bedifice.api.util.TextureOp;
+import com.github.amusingimpala.bedifice.impl.Hashing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * For generating textures, such as recolored skin variants, from a base image and a chain of operations.
+ * Operations work on the texture's pixel buffer directly, and large textures are processed in parallel tiles of rows
+ * */
+public class TextureBuilder {
+
+    /** Textures with fewer pixels than this are processed on a single thread */
+    private static final int TILE_PIXELS = 64 * 1024;
+
+    private Function<Function<String, Texture>, Texture> source = null;
+    private final List<Function<Function<String, Texture>, TextureOp>> steps = new ArrayList<>();
+    //describes the source and steps, for the build cache
+    private Supplier<String> sourceDescription = null;
+    private final List<Supplier<String>> descriptions = new ArrayList<>();
+    private boolean describable = true;
+    private final Set<String> resources = new HashSet<>();
+
+    /**
+     * Starts from an image in src/resources, which is left unchanged
+     *
+     * @param resourcePath path of the image from src/resources
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder base(String resourcePath) {
+        this.source = loader -> loader.apply(resourcePath).copy();
+        this.resources.add(resourcePath);
+        this.sourceDescription = () -> "base " + describeResource(resourcePath);
+        return this;
+    }
+
+    /**
+     * Starts from an existing texture, which is left unchanged
+     *
+     * @param texture the texture to start from
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder base(Texture texture) {
+        this.source = loader -> texture.copy();
+        this.sourceDescription = () -> "base " + describeTexture(texture);
+        return this;
+    }
+
+    /**
+     * Starts from a texture filled with a single color
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @param argb the color, as 0xAARRGGBB
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder blank(int width, int height, int argb) {
+        this.source = loader -> {
+            Texture texture = new Texture(width, height);
+            Arrays.fill(texture.getPixels(), argb);
+            return texture;
+        };
+        this.sourceDescription = () -> "blank " + width + " " + height + " " + Integer.toHexString(argb);
+        return this;
+    }
+
+    /**
+     * Multiplies the color of every pixel by the tint, leaving alpha unchanged
+     *
+     * @param rgb the tint, as 0xRRGGBB
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder tint(int rgb) {
+        int tr = (rgb >>> 16) & 0xFF;
+        int tg = (rgb >>> 8) & 0xFF;
+        int tb = rgb & 0xFF;
+        return this.step("tint " + Integer.toHexString(rgb & 0xFFFFFF), (texture, from, to) -> {
+            int[] pixels = texture.getPixels();
+            for (int i = from * texture.getWidth(), end = to * texture.getWidth(); i < end; i++) {
+                int p = pixels[i];
+                int r = (((p >>> 16) & 0xFF) * tr + 127) / 255;
+                int g = (((p >>> 8) & 0xFF) * tg + 127) / 255;
+                int b = ((p & 0xFF) * tb + 127) / 255;
+                pixels[i] = (p & 0xFF000000) | (r << 16) | (g << 8) | b;
+            }
+        });
+    }
+
+    /**
+     * Draws an image from src/resources over the texture. The image must be the same size as the texture
+     *
+     * @param resourcePath path of the image from src/resources
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder overlay(String resourcePath) {
+        this.steps.add(loader -> overlayOp(loader.apply(resourcePath)));
+        this.resources.add(resourcePath);
+        this.descriptions.add(() -> "overlay " + describeResource(resourcePath));
+        return this;
+    }
+
+    /**
+     * Draws a texture over the texture. Both must be the same size
+     *
+     * @param overlay the texture to draw over
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder overlay(Texture overlay) {
+        this.steps.add(loader -> overlayOp(overlay));
+        this.descriptions.add(() -> "overlay " + describeTexture(overlay));
+        return this;
+    }
+
+    /**
+     * Multiplies the alpha of every pixel by the alpha of the mask image from src/resources.
+     * The mask must be the same size as the texture
+     *
+     * @param resourcePath path of the mask from src/resources
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder mask(String resourcePath) {
+        this.steps.add(loader -> maskOp(loader.apply(resourcePath)));
+        this.resources.add(resourcePath);
+        this.descriptions.add(() -> "mask " + describeResource(resourcePath));
+        return this;
+    }
+
+    /**
+     * Multiplies the alpha of every pixel by the alpha of the mask. The mask must be the same size as the texture
+     *
+     * @param mask the mask
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder mask(Texture mask) {
+        this.steps.add(loader -> maskOp(mask));
+        this.descriptions.add(() -> "mask " + describeTexture(mask));
+        return this;
+    }
+
+    /**
+     * Replaces a color with another, leaving alpha unchanged
+     *
+     * @param fromRgb the color to replace, as 0xRRGGBB
+     * @param toRgb the color to replace it with, as 0xRRGGBB
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder paletteSwap(int fromRgb, int toRgb) {
+        return this.paletteSwap(Map.of(fromRgb, toRgb));
+    }
+
+    /**
+     * Replaces colors with others, leaving alpha unchanged
+     *
+     * @param swaps the colors to replace, mapped to the colors to replace them with, as 0xRRGGBB
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder paletteSwap(Map<Integer, Integer> swaps) {
+        //sorted pairs of from (high 32 bits) and to (low 32 bits), searched by from
+        long[] pairs = new long[swaps.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> swap : swaps.entrySet()) {
+            pairs[i++] = ((long) (swap.getKey() & 0xFFFFFF) << 32) | (swap.getValue() & 0xFFFFFF);
+        }
+        Arrays.sort(pairs);
+        int[] from = new int[pairs.length];
+        int[] to = new int[pairs.length];
+        for (i = 0; i < pairs.length; i++) {
+            from[i] = (int) (pairs[i] >>> 32);
+            to[i] = (int) pairs[i];
+        }
+
+        return this.step("paletteSwap " + Arrays.toString(pairs), (texture, fromRow, toRow) -> {
+            int[] pixels = texture.getPixels();
+            for (int p = fromRow * texture.getWidth(), end = toRow * texture.getWidth(); p < end; p++) {
+                int index = Arrays.binarySearch(from, pixels[p] & 0xFFFFFF);
+                if (index >= 0) pixels[p] = (pixels[p] & 0xFF000000) | to[index];
+            }
+        });
+    }
+
+    /**
+     * Randomly brightens or darkens every pixel, leaving alpha unchanged.
+     * The noise only depends on the seed and the pixel's position, so the same seed always gives the same texture
+     *
+     * @param amount the most a color channel can change by, from 0 to 255
+     * @param seed the seed of the noise
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder noise(int amount, long seed) {
+        int range = amount * 2 + 1;
+        return this.step("noise " + amount + " " + seed, (texture, from, to) -> {
+            int[] pixels = texture.getPixels();
+            int width = texture.getWidth();
+            for (int y = from; y < to; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    int delta = (int) Long.remainderUnsigned(mix(seed, x, y), range) - amount;
+                    int p = pixels[i];
+                    int r = clamp(((p >>> 16) & 0xFF) + delta);
+                    int g = clamp(((p >>> 8) & 0xFF) + delta);
+                    int b = clamp((p & 0xFF) + delta);
+                    pixels[i] = (p & 0xFF000000) | (r << 16) | (g << 8) | b;
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a custom operation. Custom operations cannot be described, so packs with them are never build cached
+     *
+     * @param op the operation
+     * @return the current TextureBuilder (this)
+     * */
+    public TextureBuilder op(TextureOp op) {
+        this.steps.add(loader -> op);
+        this.describable = false;
+        return this;
+    }
+
+    private TextureBuilder step(String description, TextureOp op) {
+        this.steps.add(loader -> op);
+        this.descriptions.add(() -> description);
+        return this;
+    }
+
+    /**
+     * Returns the images from src/resources the texture is made from
+     *
+     * @return an unmodifiable view of the paths of the images, from src/resources
+     * */
+    public Set<String> getResources() {
+        return Collections.unmodifiableSet(this.resources);
+    }
+
+    /**
+     * Describes the texture's base and operations, including the size and modification time of any images from
+     * src/resources, so that a change to the description means the rendered texture may have changed
+     *
+     * @return the description, or empty if the texture has no base or has custom operations
+     * */
+    public Optional<String> describe() {
+        if (source == null || !describable) return Optional.empty();
+        StringBuilder description = new StringBuilder(sourceDescription.get());
+        for (Supplier<String> step : descriptions) {
+            description.append(';').append(step.get());
+        }
+        return Optional.of(description.toString());
+    }
+
+    /**
+     * Renders the texture, loading images from src/resources
+     *
+     * @return the rendered texture
+     * */
+    public Texture render() {
+        return this.render(TextureBuilder::loadResource);
+    }
+
+    /**
+     * Renders the texture
+     *
+     * @param loader loads images by their path from src/resources. May return a shared texture, as it is never changed
+     * @return the rendered texture
+     * */
+    public Texture render(Function<String, Texture> loader) {
+        if (source == null) throw new MissingFormatArgumentException("Missing texture base!");
+        Texture texture = source.apply(loader);
+
+        int width = texture.getWidth();
+        int height = texture.getHeight();
+        int tileRows = Math.max(1, TILE_PIXELS / Math.max(1, width));
+        for (Function<Function<String, Texture>, TextureOp> step : steps) {
+            TextureOp op = step.apply(loader);
+            if (height <= tileRows) {
+                op.apply(texture, 0, height);
+            } else {
+                IntStream.range(0, (height + tileRows - 1) / tileRows).parallel().forEach(
+                        tile -> op.apply(texture, tile * tileRows, Math.min(height, (tile + 1) * tileRows))
+                );
+            }
+        }
+        return texture;
+    }
+
+    /**
+     * Loads an image from src/resources
+     *
+     * @param resourcePath path of the image from src/resources
+     * @return the loaded texture
+     * */
+    public static Texture loadResource(String resourcePath) {
+        try {
+            return Texture.load(Paths.get("src", "resources", resourcePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String describeResource(String resourcePath) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get("src", "resources", resourcePath), BasicFileAttributes.class);
+            return resourcePath + " " + attributes.size() + " " + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return resourcePath + " missing";
+        }
+    }
+
+    private static String describeTexture(Texture texture) {
+        ByteBuffer bytes = ByteBuffer.allocate(texture.getPixels().length * 4);
+        bytes.asIntBuffer().put(texture.getPixels());
+        MessageDigest digest = Hashing.digest();
+        digest.update(bytes);
+        return texture.getWidth() + "x" + texture.getHeight() + " " + Hashing.hex(digest.digest());
+    }
+
+    private static TextureOp overlayOp(Texture overlay) {
+        return (texture, from, to) -> {
+            checkSize(texture, overlay);
+            int[] pixels = texture.getPixels();
+            int[] over = overlay.getPixels();
+            for (int i = from * texture.getWidth(), end = to * texture.getWidth(); i < end; i++) {
+                int s = over[i];
+                int sa = s >>> 24;
+                if (sa == 0) continue;
+                if (sa == 0xFF) {
+                    pixels[i] = s;
+                    continue;
+                }
+                //straight alpha source-over
+                int d = pixels[i];
+                int da = ((d >>> 24) * (255 - sa) + 127) / 255;
+                int a = sa + da;
+                int r = ((((s >>> 16) & 0xFF) * sa) + (((d >>> 16) & 0xFF) * da) + a / 2) / a;
+                int g = ((((s >>> 8) & 0xFF) * sa) + (((d >>> 8) & 0xFF) * da) + a / 2) / a;
+                int b = (((s & 0xFF) * sa) + ((d & 0xFF) * da) + a / 2) / a;
+                pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        };
+    }
+
+    private static TextureOp maskOp(Texture mask) {
+        return (texture, from, to) -> {
+            checkSize(texture, mask);
+            int[] pixels = texture.getPixels();
+            int[] alpha = mask.getPixels();
+            for (int i = from * texture.getWidth(), end = to * texture.getWidth(); i < end; i++) {
+                int a = ((pixels[i] >>> 24) * (alpha[i] >>> 24) + 127) / 255;
+                pixels[i] = (a << 24) | (pixels[i] & 0xFFFFFF);
+            }
+        };
+    }
+
+    private static void checkSize(Texture texture, Texture other) {
+        if (texture.getWidth() != other.getWidth() || texture.getHeight() != other.getHeight()) {
+            throw new IllegalArgumentException("Textures must be the same size!");
+        }
+    }
+
+    private static long mix(long seed, int x, int y) {
+        long z = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int clamp(int channel) {
+        return Math.max(0, Math.min(255, channel));
+    }
+}
@@ -1,12 +1,90 @@
 package com.github.amusingimpala.bedifice.api.util;
 
+import java.util.Objects;
+
 /**
- * Identifies items via namespace and path
+ * Identifies items via namespace and path.
+ * Identifiers from the of methods are interned, so each identifier in use is only held once,
+ * and the string form is only built once per identifier
  * */
-public record Identifier(String namespace, String path) {
+public final class Identifier {
+
+    //keyed by namespace:path, so looking up an interned identifier by its string allocates nothing
+    private static final Interner<String, Identifier> POOL = new Interner<>();
+
+    private final String namespace;
+    private final String path;
+    private volatile String string = null;
+
+    /**
+     * Constructs an Identifier, without interning it
+     *
+     * @param namespace the namespace, such as minecraft
+     * @param path the path, such as stick
+     * */
+    public Identifier(String namespace, String path) {
+        this.namespace = Objects.requireNonNull(namespace);
+        this.path = Objects.requireNonNull(path);
+    }
+
+    /**
+     * Returns the interned Identifier for a namespace and path, creating it if there is none
+     *
+     * @param namespace the namespace, such as minecraft
+     * @param path the path, such as stick
+     * @return the interned Identifier
+     * */
+    public static Identifier of(String namespace, String path) {
+        //a namespace holding a colon would be keyed as a path holding one, so isn't interned
+        if (namespace.indexOf(':') != -1) return new Identifier(namespace, path);
+        return POOL.intern(namespace + ":" + path, () -> new Identifier(namespace, path));
+    }
+
+    /**
+     * Returns the interned Identifier for a string such as minecraft:stick.
+     * Without a namespace the minecraft namespace is used
+     *
+     * @param id the identifier, as namespace:path
+     * @return the interned Identifier
+     * */
+    public static Identifier of(String id) {
+        int split = id.indexOf(':');
+        if (split == -1) return of("minecraft", id);
+        return POOL.intern(id, () -> new Identifier(id.substring(0, split), id.substring(split + 1)));
+    }
+
+    /**
+     * @return the namespace, such as minecraft
+     * */
+    public String namespace() {
+        return this.namespace;
+    }
+
+    /**
+     * @return the path, such as stick
+     * */
+    public String path() {
+        return this.path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof Identifier other && namespace.equals(other.namespace) && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * namespace.hashCode() + path.hashCode();
+    }
 
     @Override
     public String toString() {
-        return namespace + ":" + path;
+        String string = this.string;
+        if (string == null) {
+            string = namespace + ":" + path;
+            this.string = string;
+        }
+        return string;
     }
 }
@@ -0,0 +1,66 @@
+package com.github.amusingimpala.bedifice.api.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A concurrent intern table, handing out one canonical value per key.
+ * Values are only weakly held, so a value no longer used elsewhere is collected and its entry removed,
+ * and the table only grows with the values still in use
+ *
+ * @param <K> the key, which must not hold its value
+ * @param <V> the interned value
+ * */
+final class Interner<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<K, V>> table = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> collected = new ReferenceQueue<>();
+
+    /**
+     * Returns the canonical value of a key, creating it if there is none
+     *
+     * @param key the key of the value
+     * @param factory creates the value, if there is none
+     * @return the canonical value, the same instance for every call with an equal key while it is in use
+     * */
+    V intern(K key, Supplier<V> factory) {
+        Entry<K, V> entry = table.get(key);
+        V value = entry == null ? null : entry.get();
+        if (value != null) return value;
+
+        this.expunge();
+        V created = factory.get();
+        Entry<K, V> fresh = new Entry<>(key, created, collected);
+        while (true) {
+            Entry<K, V> existing = table.putIfAbsent(key, fresh);
+            if (existing == null) return created;
+            value = existing.get();
+            if (value != null) return value;
+            //the existing value was collected, but its entry is not yet removed
+            if (table.replace(key, existing, fresh)) return created;
+        }
+    }
+
+    //removes the entries of collected values
+    @SuppressWarnings("unchecked")
+    private void expunge() {
+        Reference<? extends V> reference;
+        while ((reference = collected.poll()) != null) {
+            Entry<K, V> entry = (Entry<K, V>) reference;
+            table.remove(entry.key, entry);
+        }
+    }
+
+    private static final class Entry<K, V> extends WeakReference<V> {
+
+        private final K key;
+
+        private Entry(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
@@ -2,8 +2,37 @@ package com.github.amusingimpala.bedifice.api.util;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
-public record ItemStack(Identifier id, int data, int count) {
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A number of an item.
+ * ItemStacks from the of methods are interned, so each stack in use is only held once,
+ * and the parts of their JSON are only created once
+ * */
+public final class ItemStack {
+
+    private static final Interner<Key, ItemStack> POOL = new Interner<>();
+
+    private final Identifier id;
+    private final int data;
+    private final int count;
+    private volatile JsonPrimitive[] json = null;
+
+    /**
+     * Constructs an ItemStack, without interning it
+     *
+     * @param id the item
+     * @param data the data value of the item
+     * @param count the number of the item
+     * */
+    public ItemStack(Identifier id, int data, int count) {
+        this.id = Objects.requireNonNull(id);
+        this.data = data;
+        this.count = count;
+    }
 
     public ItemStack(Identifier id, int count) {
         this(id, 0, count);
@@ -13,13 +42,94 @@ public record ItemStack(Identifier id, int data, int count) {
         this(id, 1);
     }
 
+    /**
+     * Returns the interned ItemStack, creating it if there is none
+     *
+     * @param id the item
+     * @param data the data value of the item
+     * @param count the number of the item
+     * @return the interned ItemStack
+     * */
+    public static ItemStack of(Identifier id, int data, int count) {
+        return POOL.intern(new Key(id, data, count), () -> new ItemStack(id, data, count));
+    }
+
+    public static ItemStack of(Identifier id, int count) {
+        return of(id, 0, count);
+    }
+
+    public static ItemStack of(Identifier id) {
+        return of(id, 1);
+    }
+
+    /**
+     * @return the item
+     * */
+    public Identifier id() {
+        return this.id;
+    }
+
+    /**
+     * @return the data value of the item
+     * */
+    public int data() {
+        return this.data;
+    }
+
+    /**
+     * @return the number of the item
+     * */
+    public int count() {
+        return this.count;
+    }
+
     public JsonObject toJson() {
+        //JsonPrimitives are immutable, so can be shared between every JsonObject created
+        JsonPrimitive[] json = this.json;
+        if (json == null) {
+            json = new JsonPrimitive[]{new JsonPrimitive(id.toString()), new JsonPrimitive(count), new JsonPrimitive(data)};
+            this.json = json;
+        }
         JsonObject root = new JsonObject();
 
-        root.add("item", new JsonPrimitive(id.toString()));
-        root.add("count", new JsonPrimitive(count));
-        root.add("data", new JsonPrimitive(data));
+        root.add("item", json[0]);
+        root.add("count", json[1]);
+        root.add("data", json[2]);
 
         return root;
     }
+
+    /**
+     * Writes the same object as {@link #toJson()}
+     *
+     * @param writer the writer to write to
+     * @throws IOException if writing fails
+     * */
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("item").value(id.toString());
+        writer.name("count").value(count);
+        writer.name("data").value(data);
+        writer.endObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof ItemStack other && data == other.data && count == other.count && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return (id.hashCode() * 31 + data) * 31 + count;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemStack[id=" + id + ", data=" + data + ", count=" + count + "]";
+    }
+
+    //the intern table's key, as the table must not hold the stacks it interns
+    private record Key(Identifier id, int data, int count) {
+    }
 }
@@ -0,0 +1,101 @@
+package com.github.amusingimpala.bedifice.api.util;
+
+import com.github.amusingimpala.bedifice.impl.texture.PngEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An image held as a flat buffer of 0xAARRGGBB pixels, row by row
+ * */
+public final class Texture {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    /**
+     * Constructs a fully transparent Texture
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * */
+    public Texture(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    /**
+     * Constructs a Texture around an existing pixel buffer, which is not copied
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @param pixels the pixels, row by row, as 0xAARRGGBB
+     * */
+    public Texture(int width, int height, int[] pixels) {
+        if (pixels.length != width * height) throw new IllegalArgumentException("Pixel buffer does not match the texture size!");
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Loads an image file into a Texture
+     *
+     * @param file the image to load, such as a PNG, on any file system
+     * @return the loaded Texture
+     * @throws IOException if the file could not be read or is not an image
+     * */
+    public static Texture load(Path file) throws IOException {
+        BufferedImage image;
+        try (InputStream in = Files.newInputStream(file)) {
+            image = ImageIO.read(in);
+        }
+        if (image == null) throw new IOException("Not a readable image: " + file);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return new Texture(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    /**
+     * @return the width in pixels
+     * */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return the height in pixels
+     * */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the pixel buffer itself, so changes to it change the Texture
+     *
+     * @return the pixels, row by row, as 0xAARRGGBB
+     * */
+    public int[] getPixels() {
+        return this.pixels;
+    }
+
+    /**
+     * @return a Texture with a copy of this Texture's pixels
+     * */
+    public Texture copy() {
+        return new Texture(width, height, pixels.clone());
+    }
+
+    /**
+     * Encodes the Texture as a PNG, as small as can be losslessly managed
+     *
+     * @return the PNG file contents
+     * */
+    public byte[] toPng() {
+        return PngEncoder.encode(pixels, width, height);
+    }
+}
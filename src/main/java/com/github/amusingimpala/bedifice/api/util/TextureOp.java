@@ -0,0 +1,19 @@
+package com.github.amusingimpala.bedifice.api.util;
+
+/**
+ * An operation on the pixels of a {@link Texture}.
+ * Large textures have their rows split into tiles that are processed in parallel, so an operation must only touch
+ * the rows it is given, and must not depend on the order tiles are processed in
+ * */
+@FunctionalInterface
+public interface TextureOp {
+
+    /**
+     * Applies the operation to a range of rows of the texture
+     *
+     * @param texture the texture to change
+     * @param fromRow the first row to change, inclusive
+     * @param toRow the last row to change, exclusive
+     * */
+    void apply(Texture texture, int fromRow, int toRow);
+}
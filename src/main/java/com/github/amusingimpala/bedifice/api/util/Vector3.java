@@ -2,6 +2,9 @@ package com.github.amusingimpala.bedifice.api.util;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * Collection of 3 ints, used for Semantic Versioning
@@ -20,4 +23,14 @@ public record Vector3(int x, int y, int z) {
         arr.add(z);
         return arr;
     }
+
+    /**
+     * Writes the Vector3 as an array of the 3 ints
+     *
+     * @param writer the writer to write to
+     * @throws IOException if writing fails
+     * */
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginArray().value(x).value(y).value(z).endArray();
+    }
 }
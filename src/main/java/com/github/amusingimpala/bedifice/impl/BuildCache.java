@@ -0,0 +1,110 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import com.github.amusingimpala.bedifice.api.SaveResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Remembers the fingerprint of a pack's last save, so a save whose inputs have not changed since can be skipped.
+ * The record is a single line of: fingerprint, output stamp, files, bytes
+ * */
+public final class BuildCache {
+
+    /** Changing this invalidates every cached build, for when the saved output format changes */
+    public static final String VERSION = "build-1";
+
+    private final Path recordFile;
+
+    /**
+     * Constructs a BuildCache
+     *
+     * @param recordFile where the fingerprint of the last save is recorded
+     * */
+    public BuildCache(Path recordFile) {
+        this.recordFile = recordFile;
+    }
+
+    /**
+     * Returns whether the output was saved with the same fingerprint, and has not been changed or deleted since
+     *
+     * @param fingerprint the fingerprint of the pack's inputs
+     * @param output the folder or archive the pack saves to
+     * @return true if saving again can be skipped
+     * */
+    public boolean isFresh(String fingerprint, Path output) {
+        String[] record = read();
+        return record != null && record[0].equals(fingerprint) && record[1].equals(stamp(output));
+    }
+
+    /**
+     * Returns the result of a skipped save, with every file of the last save counted as skipped
+     *
+     * @param packName the name of the pack
+     * @param output the folder or archive the pack saves to
+     * @return the result
+     * */
+    public SaveResult skipped(String packName, Path output) {
+        String[] record = read();
+        int files = record == null ? 0 : Integer.parseInt(record[2]);
+        long bytes = record == null ? 0 : Long.parseLong(record[3]);
+        return new SaveResult(packName, output, 0, files, 0, 0, bytes);
+    }
+
+    /**
+     * Records the fingerprint of a finished save
+     *
+     * If the pack could not be fingerprinted, or the output can't be stamped, the record is deleted instead,
+     * so the next save is never skipped
+     *
+     * @param fingerprint the fingerprint of the pack's inputs, or null if the pack could not be fingerprinted
+     * @param result the result of the save
+     * @return the result, for chaining
+     * */
+    public SaveResult store(String fingerprint, SaveResult result) {
+        try {
+            String stamp = stamp(result.output());
+            if (fingerprint == null || stamp == null) {
+                Files.deleteIfExists(recordFile);
+                return result;
+            }
+            Files.createDirectories(recordFile.getParent());
+            Files.writeString(recordFile, fingerprint + "\t" + stamp + "\t" +
+                    (result.filesWritten() + result.filesSkipped()) + "\t" +
+                    (result.bytesWritten() + result.bytesSkipped()) + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Error saving build cache " + recordFile + "!");
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    private String[] read() {
+        if (!Files.isRegularFile(recordFile)) return null;
+        try {
+            String[] record = Files.readString(recordFile, StandardCharsets.UTF_8).trim().split("\t");
+            return record.length == 4 ? record : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stamps the output with the size and modification time of the archive, or of a folder's manifest.json,
+     * which every save writes
+     *
+     * @return the stamp, or null if the output or its manifest.json is missing
+     * */
+    private static String stamp(Path output) {
+        Path file = Files.isDirectory(output) ? output.resolve("manifest.json") : output;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.api.DependencyReport;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+
+import java.util.*;
+
+/**
+ * The packs of a workspace, linked by the dependencies in their manifests.
+ * Header and module UUIDs are indexed once, so checking the dependencies and ordering the packs
+ * takes time linear in the number of packs and dependencies
+ * */
+public final class DependencyGraph {
+
+    private final List<BedificePack<?>> packs;
+    private final int[][] dependencies;
+    private final List<List<Integer>> levels = new ArrayList<>();
+    private final DependencyReport report;
+
+    /**
+     * Indexes the packs' manifests and orders the packs
+     *
+     * @param packs the packs, which are referred to by their index in this list
+     * */
+    public DependencyGraph(List<BedificePack<?>> packs) {
+        this.packs = packs;
+        this.dependencies = new int[packs.size()][];
+
+        Map<String, Integer> headers = new HashMap<>();
+        Map<String, List<String>> users = new HashMap<>();
+        for (int i = 0; i < packs.size(); i++) {
+            Optional<ManifestBuilder> manifest = packs.get(i).getManifest();
+            if (manifest.isEmpty()) continue;
+            String name = packs.get(i).getPackName();
+            Optional<String> uuid = manifest.get().getUuid();
+            if (uuid.isPresent()) {
+                headers.putIfAbsent(uuid.get(), i);
+                users.computeIfAbsent(uuid.get(), u -> new ArrayList<>(1)).add(name);
+            }
+            for (String module : manifest.get().getModuleUuids()) {
+                users.computeIfAbsent(module, u -> new ArrayList<>(1)).add(name);
+            }
+        }
+
+        Map<String, List<String>> duplicates = new TreeMap<>();
+        users.forEach((uuid, names) -> {
+            if (names.size() > 1) duplicates.put(uuid, names);
+        });
+
+        Map<String, List<String>> unresolved = new LinkedHashMap<>();
+        for (int i = 0; i < packs.size(); i++) {
+            List<String> uuids = packs.get(i).getManifest().map(ManifestBuilder::getDependencies).orElse(List.of());
+            int[] resolved = new int[uuids.size()];
+            int count = 0;
+            for (String uuid : uuids) {
+                Integer dependency = headers.get(uuid);
+                if (dependency == null) {
+                    unresolved.computeIfAbsent(packs.get(i).getPackName(), p -> new ArrayList<>()).add(uuid);
+                } else {
+                    resolved[count++] = dependency;
+                }
+            }
+            this.dependencies[i] = Arrays.copyOf(resolved, count);
+        }
+
+        this.report = new DependencyReport(duplicates, unresolved, this.order());
+    }
+
+    /**
+     * Sorts the packs into levels with Kahn's algorithm, every pack coming after all of its dependencies
+     *
+     * @return the names of packs in dependency cycles
+     * */
+    private List<String> order() {
+        int[] remaining = new int[packs.size()];
+        List<List<Integer>> dependents = new ArrayList<>(packs.size());
+        for (int i = 0; i < packs.size(); i++) dependents.add(new ArrayList<>(1));
+        for (int i = 0; i < packs.size(); i++) {
+            for (int dependency : dependencies[i]) {
+                dependents.get(dependency).add(i);
+                remaining[i]++;
+            }
+        }
+
+        List<Integer> level = new ArrayList<>();
+        for (int i = 0; i < packs.size(); i++) {
+            if (remaining[i] == 0) level.add(i);
+        }
+        int ordered = 0;
+        while (!level.isEmpty()) {
+            levels.add(level);
+            ordered += level.size();
+            List<Integer> next = new ArrayList<>();
+            for (int pack : level) {
+                for (int dependent : dependents.get(pack)) {
+                    if (--remaining[dependent] == 0) next.add(dependent);
+                }
+            }
+            level = next;
+        }
+        if (ordered == packs.size()) return List.of();
+
+        //packs in a cycle, or depending on one, can't be ordered, so are saved last
+        List<Integer> rest = new ArrayList<>();
+        for (int i = 0; i < packs.size(); i++) {
+            if (remaining[i] > 0) rest.add(i);
+        }
+        levels.add(rest);
+        return cycles(rest, dependents);
+    }
+
+    /**
+     * Finds which of the unordered packs are actually in a cycle, rather than only depending on one:
+     * those whose dependents can lead back to them, found by trimming packs no unordered pack depends on
+     * */
+    private List<String> cycles(List<Integer> rest, List<List<Integer>> dependents) {
+        boolean[] unordered = new boolean[packs.size()];
+        for (int pack : rest) unordered[pack] = true;
+        int[] remaining = new int[packs.size()];
+        for (int pack : rest) {
+            for (int dependent : dependents.get(pack)) {
+                if (unordered[dependent]) remaining[pack]++;
+            }
+        }
+
+        Deque<Integer> trimmed = new ArrayDeque<>();
+        for (int pack : rest) {
+            if (remaining[pack] == 0) trimmed.add(pack);
+        }
+        while (!trimmed.isEmpty()) {
+            int pack = trimmed.poll();
+            unordered[pack] = false;
+            for (int dependency : dependencies[pack]) {
+                if (unordered[dependency] && --remaining[dependency] == 0) trimmed.add(dependency);
+            }
+        }
+
+        List<String> cycles = new ArrayList<>();
+        for (int pack : rest) {
+            if (unordered[pack]) cycles.add(packs.get(pack).getPackName());
+        }
+        return cycles;
+    }
+
+    /**
+     * Returns the packs grouped into levels, where each pack only depends on packs in earlier levels,
+     * so the packs of a level can be saved at the same time.
+     * Packs in or depending on a dependency cycle are all in the last level
+     *
+     * @return the indices of the packs in each level
+     * */
+    public List<List<Integer>> getLevels() {
+        return Collections.unmodifiableList(levels);
+    }
+
+    /**
+     * Returns the packs in the workspace a pack depends on
+     *
+     * @param pack the index of the pack
+     * @return the indices of its dependencies
+     * */
+    public int[] getDependencies(int pack) {
+        return dependencies[pack].clone();
+    }
+
+    /**
+     * @return the problems found
+     * */
+    public DependencyReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content hashing used to detect unchanged outputs
+ * */
+public final class Hashing {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private Hashing() {
+    }
+
+    /**
+     * Creates a new SHA-256 digest
+     *
+     * @return the digest
+     * */
+    public static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats a digest as lower case hexadecimal
+     *
+     * @param digest the finished digest
+     * @return the hex string
+     * */
+    public static String hex(byte[] digest) {
+        return HEX.formatHex(digest);
+    }
+
+    /**
+     * Hashes the contents of a file
+     *
+     * @param file the file to hash
+     * @return the hex SHA-256 of the file's contents
+     * @throws IOException if the file could not be read
+     * */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest = digest();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return hex(digest.digest());
+    }
+}
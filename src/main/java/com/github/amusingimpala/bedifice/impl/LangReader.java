@@ -0,0 +1,238 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import com.github.amusingimpala.bedifice.api.builders.LangBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Reads translations from .lang, CSV and TSV files.
+ * Files are memory mapped and read a line at a time, so only the translations themselves are held in memory.
+ * CSV and TSV files need a header row, whose first column is the key and other columns are locales:
+ * key,en_US,de_DE
+ * */
+public final class LangReader {
+
+    /** Files are mapped this many bytes at a time */
+    private static final long WINDOW = 64L * 1024 * 1024;
+
+    private LangReader() {
+    }
+
+    /**
+     * Reads every locale in a .lang, .csv or .tsv file. A .lang file's locale is its file name, such as en_US.lang
+     *
+     * @param file the file to read
+     * @return a LangBuilder for each locale in the file
+     * @throws IOException if the file could not be read, or is not a supported format
+     * */
+    public static List<LangBuilder> read(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        List<LangBuilder> langs = new ArrayList<>();
+        switch (extension(file)) {
+            case "lang" -> {
+                LangBuilder lang = new LangBuilder(name.substring(0, name.length() - ".lang".length()));
+                readLang(file, lang);
+                langs.add(lang);
+            }
+            case "csv", "tsv" -> readTable(file, locale -> {
+                LangBuilder lang = new LangBuilder(locale);
+                langs.add(lang);
+                return lang;
+            });
+            default -> throw new IOException("Unsupported translation file " + file + ", expected .lang, .csv, or .tsv");
+        }
+        return langs;
+    }
+
+    /**
+     * Returns whether the file is a format this can read
+     *
+     * @param file the file
+     * @return true for .lang, .csv, and .tsv files
+     * */
+    public static boolean isTranslationFile(Path file) {
+        String extension = extension(file);
+        return extension.equals("lang") || extension.equals("csv") || extension.equals("tsv");
+    }
+
+    /**
+     * Reads a .lang file into a LangBuilder. Lines starting with '#' are comments, as are tab separated '##' comments
+     * at the end of a line
+     *
+     * @param file the file to read
+     * @param lang the LangBuilder to add the translations to
+     * @throws IOException if the file could not be read
+     * */
+    public static void readLang(Path file, LangBuilder lang) throws IOException {
+        forEachLine(file, line -> {
+            if (line.isBlank() || line.startsWith("#")) return;
+            int comment = line.indexOf("\t##");
+            if (comment != -1) line = line.substring(0, comment);
+            int split = line.indexOf('=');
+            if (split <= 0) return;
+            lang.translation(line.substring(0, split), line.substring(split + 1));
+        });
+    }
+
+    /**
+     * Reads a CSV or TSV file, with a header row of key followed by locales.
+     * CSV fields may be quoted, TSV fields may not. Empty cells are skipped
+     *
+     * @param file the file to read
+     * @param columns gives the LangBuilder to add a locale's translations to, or null to skip the locale
+     * @throws IOException if the file could not be read
+     * */
+    public static void readTable(Path file, Function<String, LangBuilder> columns) throws IOException {
+        boolean csv = extension(file).equals("csv");
+        RowParser parser = new RowParser(csv ? ',' : '\t', csv);
+        List<LangBuilder> langs = new ArrayList<>();
+        forEachLine(file, line -> {
+            List<String> row = parser.feed(line);
+            if (row == null) return;
+            if (langs.isEmpty() && parser.rows == 1) {
+                langs.add(null); //key column
+                for (int i = 1; i < row.size(); i++) langs.add(columns.apply(row.get(i).trim()));
+                return;
+            }
+            String key = row.get(0);
+            if (key.isBlank()) return;
+            for (int i = 1; i < row.size() && i < langs.size(); i++) {
+                LangBuilder lang = langs.get(i);
+                if (lang != null && !row.get(i).isEmpty()) lang.translation(key, row.get(i));
+            }
+        });
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Calls the consumer for every line of the UTF-8 file, without the line ending
+     * */
+    private static void forEachLine(Path file, LineConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            byte[] line = new byte[256];
+            boolean first = true;
+            while (position < size) {
+                long length = Math.min(WINDOW, size - position);
+                boolean last = position + length == size;
+                ByteBuffer buffer = window(channel, file, position, length);
+
+                int start = 0;
+                int limit = (int) length;
+                for (int i = 0; i < limit; i++) {
+                    if (buffer.get(i) != '\n') continue;
+                    line = emit(buffer, start, i, line, first, consumer);
+                    first = false;
+                    start = i + 1;
+                }
+
+                if (last) {
+                    if (start < limit) emit(buffer, start, limit, line, first, consumer);
+                    position = size;
+                } else {
+                    //the partial line at the end of the window is read again with the next window
+                    if (start == 0) throw new IOException("Line longer than " + WINDOW + " bytes in " + file);
+                    position += start;
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer window(FileChannel channel, Path file, long position, long length) throws IOException {
+        if (file.getFileSystem() == FileSystems.getDefault()) return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        //files in archives can't be mapped, so are read instead
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        int read;
+        do {
+            read = channel.read(buffer, position + buffer.position());
+        } while (read >= 0 && buffer.hasRemaining());
+        return buffer.flip();
+    }
+
+    private static byte[] emit(ByteBuffer buffer, int start, int end, byte[] line, boolean first, LineConsumer consumer) throws IOException {
+        if (end > start && buffer.get(end - 1) == '\r') end--;
+        int length = end - start;
+        if (line.length < length) line = new byte[Math.max(length, line.length * 2)];
+        buffer.get(start, line, 0, length);
+
+        int offset = 0;
+        //UTF-8 byte order mark
+        if (first && length >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF) offset = 3;
+        consumer.accept(new String(line, offset, length - offset, StandardCharsets.UTF_8));
+        return line;
+    }
+
+    @FunctionalInterface
+    private interface LineConsumer {
+        void accept(String line) throws IOException;
+    }
+
+    /**
+     * Splits lines into fields. Quoted CSV fields may contain separators, doubled quotes and line breaks
+     * */
+    private static final class RowParser {
+
+        private final char separator;
+        private final boolean quoting;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private boolean inQuotes = false;
+        private int rows = 0;
+
+        private RowParser(char separator, boolean quoting) {
+            this.separator = separator;
+            this.quoting = quoting;
+        }
+
+        /**
+         * @return the fields of the row, or null if the row continues on the next line
+         * */
+        private List<String> feed(String line) {
+            if (inQuotes) field.append('\n');
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (inQuotes) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (c == separator) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && quoting && field.length() == 0) {
+                    inQuotes = true;
+                } else {
+                    field.append(c);
+                }
+            }
+            if (inQuotes) return null;
+
+            fields.add(field.toString());
+            field.setLength(0);
+            List<String> row = new ArrayList<>(fields);
+            fields.clear();
+            rows++;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import com.github.amusingimpala.bedifice.api.BedificeBehvaiourPack;
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.api.BedificeResourcePack;
+import com.github.amusingimpala.bedifice.api.BedificeSkinPack;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.builders.skins.SkinBuilder;
+import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Reads existing packs, from folders or from .mcpack and .zip archives, back into bEdifice packs.
+ * The manifest.json, skins.json and texts/*.lang files are parsed into builders with streaming readers, while every
+ * other file is included from where it is, so nothing is copied until the pack is saved
+ * */
+public final class PackImporter {
+
+    /** Archives opened while importing, kept open so their files can be read when the packs are saved, until {@link #close()} */
+    private static final Map<Path, FileSystem> ARCHIVES = new ConcurrentHashMap<>();
+
+    private PackImporter() {
+    }
+
+    /**
+     * Returns whether a path looks like a pack that can be imported
+     *
+     * @param path the path to check
+     * @return true for folders, and for .mcpack and .zip files
+     * */
+    public static boolean isPack(Path path) {
+        if (Files.isDirectory(path)) return true;
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".mcpack") || name.endsWith(".zip");
+    }
+
+    /**
+     * Imports a pack. Skin packs are named by their serialize_name, so their translation keys stay the same,
+     * and other packs by their folder or archive name
+     *
+     * @param pack the pack's folder, or its .mcpack or .zip archive
+     * @return the imported pack, a skin, resource or behaviour pack depending on its modules
+     * @throws IOException if the pack could not be read
+     * */
+    public static BedificePack<?> read(Path pack) throws IOException {
+        Path root = findManifest(Files.isDirectory(pack) ? pack : open(pack))
+                .orElseThrow(() -> new MissingFormatArgumentException("Missing manifest.json in " + pack + "!"));
+        String fileName = pack.getFileName().toString();
+        String name = Files.isDirectory(pack) || fileName.lastIndexOf('.') == -1 ? fileName : fileName.substring(0, fileName.lastIndexOf('.'));
+
+        Manifest manifest = readManifest(root.resolve("manifest.json"));
+        if (manifest.types().contains(ManifestBuilder.ModuleType.SKIN_PACK)) {
+            return readSkinPack(root, name, manifest);
+        }
+
+        BedificePack<?> imported;
+        if (manifest.types().contains(ManifestBuilder.ModuleType.RESOURCES)) {
+            imported = new BedificeResourcePack(name);
+        } else if (manifest.types().contains(ManifestBuilder.ModuleType.DATA) || manifest.types().contains(ManifestBuilder.ModuleType.CLIENT_DATA)
+                || manifest.types().contains(ManifestBuilder.ModuleType.JAVASCRIPT)) {
+            imported = new BedificeBehvaiourPack(name);
+        } else {
+            throw new MissingFormatArgumentException("Pack " + pack + " is not a skin, resource, or behaviour pack!");
+        }
+        imported.manifest(manifest.builder());
+        imported.include(root);
+        imported.exclude("manifest.json");
+        return imported;
+    }
+
+    private static BedificeSkinPack readSkinPack(Path root, String name, Manifest manifest) throws IOException {
+        List<String[]> skins = new ArrayList<>();
+        String serializeName = name;
+        Path skinsFile = root.resolve("skins.json");
+        if (Files.isRegularFile(skinsFile)) {
+            try (JsonReader reader = reader(skinsFile)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "serialize_name" -> serializeName = reader.nextString();
+                        case "skins" -> {
+                            reader.beginArray();
+                            while (reader.hasNext()) skins.add(readSkin(reader));
+                            reader.endArray();
+                        }
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+        }
+
+        List<Path> langs = new ArrayList<>();
+        Path texts = root.resolve("texts");
+        if (Files.isDirectory(texts)) {
+            try (Stream<Path> list = Files.list(texts)) {
+                list.filter(file -> file.getFileName().toString().endsWith(".lang")).sorted().forEach(langs::add);
+            }
+        }
+
+        BedificeSkinPack pack = new BedificeSkinPack(serializeName);
+        pack.manifest(manifest.builder()).include(root).exclude("manifest.json");
+        if (Files.isRegularFile(skinsFile)) {
+            pack.exclude("skins.json").skins(builder -> {
+                for (String[] skin : skins) builder.skin(skin[0], skin[1], skin[2], skin[3]);
+            });
+        }
+        if (!langs.isEmpty()) {
+            for (Path lang : langs) pack.exclude("texts/" + lang.getFileName());
+            pack.translations(langs.toArray(Path[]::new));
+        }
+        return pack;
+    }
+
+    /**
+     * @return the skin's name, image, type and geometry
+     * */
+    private static String[] readSkin(JsonReader reader) throws IOException {
+        String[] skin = {null, null, "free", SkinBuilder.DEFAULT_GEOMETRY};
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "localization_name" -> skin[0] = reader.nextString();
+                case "texture" -> skin[1] = reader.nextString();
+                case "type" -> skin[2] = reader.nextString();
+                case "geometry" -> skin[3] = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (skin[0] == null || skin[1] == null) throw new MissingFormatArgumentException("Skin without a name or texture in skins.json!");
+        return skin;
+    }
+
+    /**
+     * Reads a manifest.json into the steps building it again. Fields bEdifice has no builder for, such as script
+     * dependencies, are left out
+     * */
+    private static Manifest readManifest(Path file) throws IOException {
+        List<Processor<ManifestBuilder>> steps = new ArrayList<>();
+        Set<ManifestBuilder.ModuleType> types = EnumSet.noneOf(ManifestBuilder.ModuleType.class);
+        try (JsonReader reader = reader(file)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "format_version" -> {
+                        int formatVersion = reader.nextInt();
+                        steps.add(manifest -> manifest.formatVersion(formatVersion));
+                    }
+                    case "header" -> steps.add(readHeader(reader));
+                    case "modules" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) steps.add(readModule(reader, types, file));
+                        reader.endArray();
+                    }
+                    case "dependencies" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) steps.add(readDependency(reader));
+                        reader.endArray();
+                    }
+                    case "capabilities" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            String capability = reader.nextString();
+                            try {
+                                ManifestBuilder.CapabilityType type = ManifestBuilder.CapabilityType.valueOf(capability.toUpperCase(Locale.ROOT));
+                                steps.add(manifest -> manifest.capability(type));
+                            } catch (IllegalArgumentException e) {
+                                System.out.println("Unknown capability " + capability + " in " + file + ", leaving it out");
+                            }
+                        }
+                        reader.endArray();
+                    }
+                    case "subpacks" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) steps.add(readSubpack(reader));
+                        reader.endArray();
+                    }
+                    case "metadata" -> steps.add(readMetadata(reader));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return new Manifest(steps, types);
+    }
+
+    private static Processor<ManifestBuilder> readHeader(JsonReader reader) throws IOException {
+        String name = null, description = null, uuid = null;
+        Vector3 version = null, minEngineVersion = null, baseGameVersion = null;
+        boolean lockTemplateOptions = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "description" -> description = reader.nextString();
+                case "uuid" -> uuid = reader.nextString();
+                case "version" -> version = readVersion(reader);
+                case "min_engine_version" -> minEngineVersion = readVersion(reader);
+                case "base_game_version" -> baseGameVersion = readVersion(reader);
+                case "lock_template_options" -> lockTemplateOptions = reader.nextBoolean();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (name == null || version == null) throw new MissingFormatArgumentException("Missing header name or version!");
+
+        String headerDescription = description, headerUuid = uuid;
+        Vector3 headerMinEngineVersion = minEngineVersion, headerBaseGameVersion = baseGameVersion;
+        boolean headerLockTemplateOptions = lockTemplateOptions;
+        String headerName = name;
+        Vector3 headerVersion = version;
+        return manifest -> manifest.header(headerName, headerVersion, header -> {
+            if (headerUuid != null) header.uuid(headerUuid);
+            if (headerDescription != null) header.description(headerDescription);
+            if (headerMinEngineVersion != null) header.minEngineVersion(headerMinEngineVersion);
+            if (headerBaseGameVersion != null) header.baseGameVersion(headerBaseGameVersion);
+            if (headerLockTemplateOptions) header.lockTemplateOptions();
+        });
+    }
+
+    /**
+     * Reads a module. Types the builder has no value for, such as the script modules of newer packs, are left out
+     * */
+    private static Processor<ManifestBuilder> readModule(JsonReader reader, Set<ManifestBuilder.ModuleType> types, Path file) throws IOException {
+        String type = null, uuid = null, description = null, entry = null;
+        Vector3 version = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type" -> type = reader.nextString();
+                case "uuid" -> uuid = reader.nextString();
+                case "description" -> description = reader.nextString();
+                case "entry" -> entry = reader.nextString();
+                case "version" -> version = readVersion(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (type == null || uuid == null || version == null) throw new MissingFormatArgumentException("Missing module type, UUID or version!");
+
+        ManifestBuilder.ModuleType moduleType;
+        try {
+            moduleType = ManifestBuilder.ModuleType.valueOf(type.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown module type " + type + " in " + file + ", leaving it out");
+            return manifest -> {};
+        }
+        types.add(moduleType);
+        String moduleUuid = uuid, moduleDescription = description, moduleEntry = entry;
+        Vector3 moduleVersion = version;
+        if (description == null) return manifest -> manifest.module(moduleType, moduleVersion, moduleUuid);
+        return manifest -> manifest.module(moduleType, moduleVersion, moduleUuid, moduleDescription, moduleEntry);
+    }
+
+    private static Processor<ManifestBuilder> readDependency(JsonReader reader) throws IOException {
+        String uuid = null;
+        Vector3 version = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "uuid" -> uuid = reader.nextString();
+                case "version" -> version = readVersion(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        //dependencies on script modules are by name, which the builder does not support
+        if (uuid == null || version == null) return manifest -> {};
+        String dependencyUuid = uuid;
+        Vector3 dependencyVersion = version;
+        return manifest -> manifest.dependency(dependencyUuid, dependencyVersion);
+    }
+
+    private static Processor<ManifestBuilder> readSubpack(JsonReader reader) throws IOException {
+        String folderName = null, name = null;
+        int memoryTier = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "folder_name" -> folderName = reader.nextString();
+                case "name" -> name = reader.nextString();
+                case "memory_tier" -> memoryTier = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (folderName == null) throw new MissingFormatArgumentException("Missing subpack folder name!");
+        String subpackFolder = folderName, subpackName = name == null ? folderName : name;
+        int subpackTier = memoryTier;
+        return manifest -> manifest.subpack(subpackFolder, subpackName, subpackTier);
+    }
+
+    private static Processor<ManifestBuilder> readMetadata(JsonReader reader) throws IOException {
+        List<String> authors = new ArrayList<>();
+        String license = null, url = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "authors" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) authors.add(reader.nextString());
+                    reader.endArray();
+                }
+                case "license" -> license = reader.nextString();
+                case "url" -> url = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        String metaLicense = license, metaUrl = url;
+        return manifest -> manifest.metadata(meta -> {
+            meta.authors(authors.toArray(String[]::new));
+            if (metaLicense != null) meta.license(metaLicense);
+            if (metaUrl != null) meta.url(metaUrl);
+        });
+    }
+
+    /**
+     * Reads a version, either as an array such as [1, 2, 0] or as a string such as "1.2.0"
+     * */
+    private static Vector3 readVersion(JsonReader reader) throws IOException {
+        int[] parts = new int[3];
+        if (reader.peek() == JsonToken.STRING) {
+            String[] split = reader.nextString().split("[.-]");
+            for (int i = 0; i < Math.min(3, split.length); i++) parts[i] = Integer.parseInt(split[i].trim());
+        } else {
+            reader.beginArray();
+            for (int i = 0; reader.hasNext(); i++) {
+                if (i < 3) parts[i] = reader.nextInt();
+                else reader.skipValue();
+            }
+            reader.endArray();
+        }
+        return new Vector3(parts[0], parts[1], parts[2]);
+    }
+
+    /**
+     * Opens a UTF-8 JSON file, leniently as packs are often hand written with comments, and skipping any byte order mark
+     * */
+    private static JsonReader reader(Path file) throws IOException {
+        BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        in.mark(1);
+        if (in.read() != '\uFEFF') in.reset();
+        JsonReader reader = new JsonReader(in);
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Opens an archive as a file system, or finds it already open
+     *
+     * @return the root of the archive
+     * */
+    private static Path open(Path archive) throws IOException {
+        try {
+            FileSystem zip = ARCHIVES.computeIfAbsent(archive.toAbsolutePath().normalize(), path -> {
+                try {
+                    return FileSystems.newFileSystem(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return zip.getRootDirectories().iterator().next();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Closes the archives opened while importing. Packs imported from them can't be saved afterwards,
+     * and importing them again opens them again
+     * */
+    public static void close() {
+        for (Path archive : ARCHIVES.keySet()) {
+            FileSystem zip = ARCHIVES.remove(archive);
+            if (zip == null) continue;
+            try {
+                zip.close();
+            } catch (IOException e) {
+                System.out.println("Error closing archive " + archive + "!");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Finds the folder with the manifest, either the root or, as archives are often made, a single folder in it
+     * */
+    private static Optional<Path> findManifest(Path root) throws IOException {
+        if (Files.isRegularFile(root.resolve("manifest.json"))) return Optional.of(root);
+        try (Stream<Path> list = Files.list(root)) {
+            List<Path> folders = list.filter(Files::isDirectory).filter(folder -> Files.isRegularFile(folder.resolve("manifest.json"))).toList();
+            return folders.size() == 1 ? Optional.of(folders.get(0)) : Optional.empty();
+        }
+    }
+
+    /**
+     * A read manifest
+     *
+     * @param steps the calls building the manifest again, in order
+     * @param types the types of the manifest's modules
+     * */
+    private record Manifest(List<Processor<ManifestBuilder>> steps, Set<ManifestBuilder.ModuleType> types) {
+
+        /**
+         * @return a processor building the read manifest
+         * */
+        private Processor<ManifestBuilder> builder() {
+            return manifest -> {
+                for (Processor<ManifestBuilder> step : steps) step.accept(manifest);
+            };
+        }
+    }
+}
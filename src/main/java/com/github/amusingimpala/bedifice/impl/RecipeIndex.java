@@ -0,0 +1,156 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeBuilder;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeReport;
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+
+import java.util.*;
+
+/**
+ * Finds duplicate and ambiguous recipes in a single pass, by hashing each recipe's identifier and its ingredients
+ * normalized per tag:
+ * shaped patterns are trimmed to their used slots and the smaller of them and their mirror image is kept,
+ * shapeless ingredients and furnace inputs are sorted. As any arrangement of a shapeless recipe's ingredients
+ * crafts it, shaped recipes also conflict with shapeless recipes of the same ingredients
+ * */
+public final class RecipeIndex {
+
+    private RecipeIndex() {
+    }
+
+    /**
+     * Indexes the recipes
+     *
+     * @param recipes the recipes to check
+     * @return the problems found
+     * */
+    public static RecipeReport index(Collection<RecipeBuilder> recipes) {
+        Map<Identifier, Integer> ids = new HashMap<>();
+        //tag and normalized ingredients, to the recipes with them
+        Map<String, List<Identifier>> exact = new HashMap<>();
+        Map<String, List<Identifier>> shapeless = new HashMap<>();
+        Map<String, List<Identifier>> shapedIngredients = new HashMap<>();
+
+        for (RecipeBuilder recipe : recipes) {
+            RecipeBuilder.RecipeDataBuilder data = recipe.getData();
+            Identifier id = data.getIdentifier();
+            ids.merge(id, 1, Integer::sum);
+
+            List<String> tags = data.getTags().isEmpty() ? List.of("") : data.getTags();
+            for (String tag : new LinkedHashSet<>(tags)) {
+                switch (data.getType()) {
+                    case RECIPE_FURNACE -> data.getInput().ifPresent(input ->
+                            add(exact, tag + "\0furnace " + item(input), id));
+                    case RECIPE_SHAPED -> {
+                        add(exact, tag + "\0shaped " + shape(data), id);
+                        add(shapedIngredients, tag + "\0" + ingredients(data.getPattern(), data.getKey()), id);
+                    }
+                    case RECIPE_SHAPELESS -> add(shapeless, tag + "\0" + ingredients(data.getIngredients()), id);
+                }
+            }
+        }
+
+        Map<Identifier, Integer> duplicates = new TreeMap<>(Comparator.comparing(Identifier::toString));
+        ids.forEach((id, count) -> {
+            if (count > 1) duplicates.put(id, count);
+        });
+
+        List<RecipeReport.Conflict> conflicts = new ArrayList<>();
+        exact.forEach((key, found) -> conflict(conflicts, key, found));
+        shapeless.forEach((key, found) -> {
+            List<Identifier> all = new ArrayList<>(found);
+            all.addAll(shapedIngredients.getOrDefault(key, List.of()));
+            conflict(conflicts, key, all);
+        });
+        conflicts.sort(Comparator.comparing(RecipeReport.Conflict::tag).thenComparing(RecipeReport.Conflict::ingredients));
+
+        return new RecipeReport(Collections.unmodifiableMap(duplicates), Collections.unmodifiableList(conflicts));
+    }
+
+    private static void add(Map<String, List<Identifier>> index, String key, Identifier id) {
+        index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(id);
+    }
+
+    private static void conflict(List<RecipeReport.Conflict> conflicts, String key, List<Identifier> found) {
+        //a recipe with a duplicate identifier is reported as a duplicate, not as conflicting with itself
+        List<Identifier> distinct = new ArrayList<>(new LinkedHashSet<>(found));
+        if (distinct.size() < 2) return;
+        distinct.sort(Comparator.comparing(Identifier::toString));
+        int split = key.indexOf('\0');
+        conflicts.add(new RecipeReport.Conflict(key.substring(0, split), key.substring(split + 1), distinct));
+    }
+
+    private static String item(ItemStack item) {
+        return item.data() == 0 ? item.id().toString() : item.id() + "@" + item.data();
+    }
+
+    /**
+     * @return the pattern trimmed to its used slots, as rows of items, whichever of it and its mirror image sorts first
+     * */
+    private static String shape(RecipeBuilder.RecipeDataBuilder data) {
+        List<String> pattern = data.getPattern();
+        int width = 0;
+        for (String row : pattern) width = Math.max(width, row.length());
+
+        int top = pattern.size(), bottom = -1, left = width, right = -1;
+        for (int y = 0; y < pattern.size(); y++) {
+            String row = pattern.get(y);
+            for (int x = 0; x < row.length(); x++) {
+                if (row.charAt(x) == ' ') continue;
+                top = Math.min(top, y);
+                bottom = Math.max(bottom, y);
+                left = Math.min(left, x);
+                right = Math.max(right, x);
+            }
+        }
+
+        StringBuilder shape = new StringBuilder();
+        StringBuilder mirror = new StringBuilder();
+        for (int y = top; y <= bottom; y++) {
+            if (y > top) {
+                shape.append('/');
+                mirror.append('/');
+            }
+            String row = pattern.get(y);
+            for (int x = left; x <= right; x++) {
+                if (x > left) {
+                    shape.append(',');
+                    mirror.append(',');
+                }
+                slot(shape, row, x, data.getKey());
+                slot(mirror, row, right - (x - left), data.getKey());
+            }
+        }
+        String a = shape.toString();
+        String b = mirror.toString();
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static void slot(StringBuilder shape, String row, int x, Map<Character, ItemStack> key) {
+        char symbol = x < row.length() ? row.charAt(x) : ' ';
+        ItemStack item = key.get(symbol);
+        shape.append(symbol == ' ' || item == null ? "_" : item(item));
+    }
+
+    private static String ingredients(List<String> pattern, Map<Character, ItemStack> key) {
+        List<String> items = new ArrayList<>();
+        for (String row : pattern) {
+            for (char symbol : row.toCharArray()) {
+                ItemStack item = key.get(symbol);
+                if (symbol != ' ' && item != null) items.add(item(item));
+            }
+        }
+        Collections.sort(items);
+        return String.join(",", items);
+    }
+
+    private static String ingredients(List<ItemStack> ingredients) {
+        List<String> items = new ArrayList<>();
+        for (ItemStack ingredient : ingredients) {
+            for (int i = 0; i < Math.max(1, ingredient.count()); i++) items.add(item(ingredient));
+        }
+        Collections.sort(items);
+        return String.join(",", items);
+    }
+}
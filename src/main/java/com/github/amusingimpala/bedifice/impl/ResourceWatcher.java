@@ -0,0 +1,108 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches a folder and all of its sub folders for changed files, collecting bursts of events into one set of changes
+ * */
+public final class ResourceWatcher implements Closeable {
+
+    private final Path root;
+    private final WatchService service;
+    private final Map<WatchKey, Path> folders = new HashMap<>();
+
+    /**
+     * Starts watching a folder
+     *
+     * @param root the folder to watch, along with its sub folders
+     * @throws IOException if the folder could not be watched
+     * */
+    public ResourceWatcher(Path root) throws IOException {
+        this.root = root;
+        this.service = root.getFileSystem().newWatchService();
+        this.register(root, null);
+    }
+
+    /**
+     * Waits for files to change, then keeps collecting changes until none have happened for the debounce time
+     *
+     * @param debounceMillis how long to wait for more changes after one, in milliseconds
+     * @return the changes
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IOException if a new folder could not be watched
+     * */
+    public Changes poll(long debounceMillis) throws InterruptedException, IOException {
+        Set<String> paths = new TreeSet<>();
+        boolean overflowed = this.process(service.take(), paths);
+        WatchKey key;
+        while ((key = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+            overflowed |= this.process(key, paths);
+        }
+        return new Changes(paths, overflowed);
+    }
+
+    /**
+     * @return whether events were lost
+     * */
+    private boolean process(WatchKey key, Set<String> paths) throws IOException {
+        Path folder = folders.get(key);
+        boolean overflowed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || folder == null) {
+                overflowed = true;
+                continue;
+            }
+            Path path = folder.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                //files may have been put in the folder before it was watched
+                this.register(path, paths);
+            } else if (!Files.isDirectory(path)) {
+                paths.add(relativize(path));
+            }
+        }
+        if (!key.reset()) folders.remove(key);
+        return overflowed;
+    }
+
+    private void register(Path folder, Set<String> found) throws IOException {
+        try (Stream<Path> walk = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) walk::iterator) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    folders.put(path.register(service,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE), path);
+                } else if (found != null) {
+                    found.add(relativize(path));
+                }
+            }
+        }
+    }
+
+    private String relativize(Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    /**
+     * Files changed in a burst of events
+     *
+     * @param paths the created, modified, or deleted files, relative to the watched folder and '/' separated
+     * @param overflowed whether events were lost, so any file may have changed
+     * */
+    public record Changes(Set<String> paths, boolean overflowed) {
+    }
+}
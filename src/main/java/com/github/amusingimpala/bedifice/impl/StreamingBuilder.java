@@ -0,0 +1,42 @@
+package com.github.amusingimpala.bedifice.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link Builder} that can also write itself straight to a {@link JsonWriter}, without building a {@link com.google.gson.JsonObject} first
+ * */
+public interface StreamingBuilder extends Builder {
+
+    /**
+     * Writes the built object to the writer
+     *
+     * @param writer the writer to write to
+     * @throws IOException if writing fails
+     * */
+    void write(JsonWriter writer) throws IOException;
+
+    /**
+     * Writes the built object to the stream as UTF-8, formatted like the Gson would format it.
+     * The stream is flushed but not closed
+     *
+     * @param out the stream to write to
+     * @param gson the Gson whose formatting (pretty printing or not) to use
+     * @throws IOException if writing fails
+     * */
+    default void write(OutputStream out, Gson gson) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonWriter json = gson.newJsonWriter(writer);
+        //newJsonWriter does not apply html escaping, while Gson#toJson does
+        json.setHtmlSafe(gson.htmlSafe());
+        this.write(json);
+        json.flush();
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.amusingimpala.bedifice.impl.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a single file of a pack being saved
+ * */
+@Name("bedifice.FileSave")
+@Label("File Save")
+@Category("bEdifice")
+@Description("A file of a pack being written, copied, or skipped")
+public class FileSaveEvent extends jdk.jfr.Event {
+
+    @Label("Pack")
+    public String pack;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,41 @@
+package com.github.amusingimpala.bedifice.impl.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a whole pack being saved
+ * */
+@Name("bedifice.PackSave")
+@Label("Pack Save")
+@Category("bEdifice")
+@Description("A pack being saved, or skipped as it was unchanged")
+public class PackSaveEvent extends jdk.jfr.Event {
+
+    @Label("Pack")
+    public String pack;
+
+    @Label("Output")
+    public String output;
+
+    @Label("Cached")
+    @Description("Whether the pack was unchanged, so was not saved")
+    public boolean cached;
+
+    @Label("Files Written")
+    public int filesWritten;
+
+    @Label("Files Skipped")
+    public int filesSkipped;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Bytes Skipped")
+    @DataAmount
+    public long bytesSkipped;
+}
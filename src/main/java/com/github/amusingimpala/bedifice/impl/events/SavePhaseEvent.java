@@ -0,0 +1,35 @@
+package com.github.amusingimpala.bedifice.impl.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a phase of a pack being saved. The event's duration is the time the saving thread spent in the phase,
+ * while its span also waits for the files submitted during the phase to be saved in the background
+ * */
+@Name("bedifice.SavePhase")
+@Label("Save Phase")
+@Category("bEdifice")
+@Description("A phase of a pack being saved")
+public class SavePhaseEvent extends jdk.jfr.Event {
+
+    @Label("Pack")
+    public String pack;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Bytes")
+    @Description("Bytes of the files saved during the phase")
+    @DataAmount
+    public long bytes;
+
+    @Label("Span")
+    @Description("Time from entering the phase until it was left and every file submitted during it was saved")
+    @Timespan
+    public long span;
+}
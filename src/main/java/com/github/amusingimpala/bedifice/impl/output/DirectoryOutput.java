@@ -0,0 +1,73 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Saves a pack into a freshly cleared directory, or into an existing save of the pack to replace some of its files
+ * */
+public class DirectoryOutput extends PackOutput {
+
+    private final FileTransfer transfer;
+
+    /**
+     * Constructs a DirectoryOutput, removing anything previously saved in the directory
+     *
+     * @param directory the directory to save into
+     * @param transfer how included files are put into the directory
+     * @throws IOException if the directory could not be cleared or created
+     * */
+    public DirectoryOutput(Path directory, FileTransfer transfer) throws IOException {
+        this(directory, transfer, true);
+    }
+
+    /**
+     * Constructs a DirectoryOutput
+     *
+     * @param directory the directory to save into
+     * @param transfer how included files are put into the directory
+     * @param clear whether to remove anything previously saved in the directory, rather than only replacing the files saved
+     * @throws IOException if the directory could not be cleared or created
+     * */
+    public DirectoryOutput(Path directory, FileTransfer transfer, boolean clear) throws IOException {
+        super(directory);
+        this.transfer = transfer;
+        if (clear) FileUtils.deleteDirectory(directory.toFile());
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    protected void onWrite(String path, IOConsumer<OutputStream> writer) throws IOException {
+        Path target = resolve(path);
+        //never write through a linked include
+        Files.deleteIfExists(target);
+        try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            writer.accept(out);
+            out.flush();
+            recordWritten(out.getByteCount());
+        }
+    }
+
+    @Override
+    protected void onCopy(Path source, String path) throws IOException {
+        Path target = resolve(path);
+        transfer.transfer(source, target);
+        recordWritten(Files.size(target));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Path resolve(String path) throws IOException {
+        Path target = getLocation().resolve(path);
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+}
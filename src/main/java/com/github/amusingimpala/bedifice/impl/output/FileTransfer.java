@@ -0,0 +1,163 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.impl.Hashing;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Puts included files into a directory output, according to the pack's {@link BedificePack.IncludeStrategy}
+ * */
+public class FileTransfer {
+
+    /** Where the {@link BedificePack.IncludeStrategy#STORE} strategy keeps a single copy of each file's contents */
+    public static final Path STORE = Paths.get("out", ".store");
+    /** Content hashes of files already stored while running, keyed by path, size, and modification time */
+    private static final Map<String, String> STORED = new ConcurrentHashMap<>();
+
+    private final BedificePack.IncludeStrategy strategy;
+    private volatile boolean linksFailed = false;
+
+    /**
+     * Constructs a FileTransfer
+     *
+     * @param strategy how included files are put into the output
+     * */
+    public FileTransfer(BedificePack.IncludeStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Puts the source file at the target, replacing anything already there.
+     * Existing targets are always removed first rather than overwritten, as they may be links to a source file
+     *
+     * @param source the file to include
+     * @param target where the file is put
+     * @throws IOException if the file could not be linked or copied
+     * */
+    public void transfer(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+
+        //files in other file systems, such as inside archives, can only be copied, or stored first
+        boolean linkable = strategy == BedificePack.IncludeStrategy.STORE || source.getFileSystem() == target.getFileSystem();
+        if (strategy != BedificePack.IncludeStrategy.COPY && !linksFailed && linkable) {
+            try {
+                Files.createLink(target, strategy == BedificePack.IncludeStrategy.STORE ? store(source) : source);
+                return;
+            } catch (UnsupportedOperationException e) {
+                linksFailed = true;
+            } catch (FileSystemException e) {
+                //other failures, such as a missing source file, would fail a copy too
+                if (!cannotLink(e, source, target)) throw e;
+                linksFailed = true;
+            }
+        }
+
+        copy(source, target);
+    }
+
+    /**
+     * Returns whether a link failed because the files can't be linked, rather than the link itself being wrong.
+     * The output is then on another device, or on a file system without links, so every file is copied from then on
+     * */
+    private boolean cannotLink(FileSystemException e, Path source, Path target) {
+        if (e instanceof NoSuchFileException || e instanceof FileAlreadyExistsException || e instanceof AccessDeniedException) {
+            return false;
+        }
+        try {
+            Path linked = strategy == BedificePack.IncludeStrategy.STORE ? STORE : source;
+            if (!Files.getFileStore(linked).equals(Files.getFileStore(target.getParent()))) return true;
+        } catch (IOException ignored) {
+            //the reason is all there is to go on
+        }
+        String reason = e.getReason() == null ? "" : e.getReason().toLowerCase(Locale.ROOT);
+        return reason.contains("cross-device") || reason.contains("not permitted") || reason.contains("not supported");
+    }
+
+    /**
+     * Returns whether the target already is the source file, linked into the output
+     *
+     * @param source the file included
+     * @param target where the file is put
+     * @return true if both paths are the same file
+     * @throws IOException if the files could not be compared
+     * */
+    public boolean isLinked(Path source, Path target) throws IOException {
+        return strategy == BedificePack.IncludeStrategy.LINK && Files.exists(target) && Files.isSameFile(source, target);
+    }
+
+    /**
+     * Deletes every file in the store that is no longer linked into any output.
+     * Needs a file system that counts links, such as those of Linux and macOS
+     *
+     * @return the number of files deleted
+     * @throws IOException if the store could not be read
+     * */
+    public static int pruneStore() throws IOException {
+        if (!Files.isDirectory(STORE)) return 0;
+        if (!Files.getFileStore(STORE).supportsFileAttributeView("unix")) {
+            System.out.println("Can't prune " + STORE + ", the file system does not count links");
+            return 0;
+        }
+        List<Path> blobs;
+        try (Stream<Path> walk = Files.walk(STORE)) {
+            blobs = walk.filter(Files::isRegularFile).toList();
+        }
+        int deleted = 0;
+        for (Path blob : blobs) {
+            if (((Number) Files.getAttribute(blob, "unix:nlink")).intValue() <= 1) {
+                Files.delete(blob);
+                deleted++;
+            }
+        }
+        STORED.clear();
+        return deleted;
+    }
+
+    /**
+     * Copies the file into the store, unless its contents are already there
+     *
+     * @return the stored file
+     * */
+    private static Path store(Path source) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        String key = source.toAbsolutePath() + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toMillis();
+        String hash = STORED.get(key);
+        if (hash == null) hash = Hashing.hash(source);
+
+        Path blob = STORE.resolve(hash.substring(0, 2)).resolve(hash);
+        if (!Files.exists(blob)) {
+            Files.createDirectories(blob.getParent());
+            //copied next to the blob, then moved into place, so a blob is never seen half written
+            Path temp = blob.resolveSibling(hash + "." + Thread.currentThread().getId() + ".tmp");
+            try {
+                Files.deleteIfExists(temp);
+                copy(source, temp);
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        STORED.put(key, hash);
+        return blob;
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import java.io.IOException;
+
+/**
+ * Consumer that may throw an {@link IOException}
+ * */
+@FunctionalInterface
+public interface IOConsumer<T> {
+
+    /**
+     * Consumes the value
+     *
+     * @param val the value to consume
+     * @throws IOException if an I/O error occurs
+     * */
+    void accept(T val) throws IOException;
+}
@@ -0,0 +1,196 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import com.github.amusingimpala.bedifice.impl.Hashing;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Saves a pack into a directory that already holds a previous save of the pack, only rewriting files whose contents
+ * changed and deleting files that are no longer part of the pack.
+ * What was previously saved is tracked by a {@link Ledger}
+ * */
+public class IncrementalOutput extends PackOutput {
+
+    private final Path ledgerFile;
+    private final FileTransfer transfer;
+    private final Ledger previous;
+    private final Ledger current = new Ledger();
+    private final boolean partial;
+
+    /**
+     * Constructs an IncrementalOutput. If there is no ledger of a previous save, the directory is cleared
+     *
+     * @param directory the directory to save into
+     * @param ledgerFile the file in which the ledger is kept between saves
+     * @param transfer how included files are put into the directory
+     * @throws IOException if the ledger could not be read, or the directory could not be created
+     * */
+    public IncrementalOutput(Path directory, Path ledgerFile, FileTransfer transfer) throws IOException {
+        this(directory, ledgerFile, transfer, false);
+    }
+
+    /**
+     * Constructs an IncrementalOutput. If there is no ledger of a previous save, the directory is cleared
+     *
+     * @param directory the directory to save into
+     * @param ledgerFile the file in which the ledger is kept between saves
+     * @param transfer how included files are put into the directory
+     * @param partial whether only some of the pack's files are saved, such as when updating changed resources.
+     *                Files not saved are then kept, along with their entries in the ledger
+     * @throws IOException if the ledger could not be read, or the directory could not be created
+     * */
+    public IncrementalOutput(Path directory, Path ledgerFile, FileTransfer transfer, boolean partial) throws IOException {
+        super(directory);
+        this.ledgerFile = ledgerFile;
+        this.transfer = transfer;
+        this.partial = partial;
+        if (Files.exists(ledgerFile)) {
+            this.previous = Ledger.load(ledgerFile);
+        } else {
+            //nothing is known about what is in the directory, so start from scratch
+            FileUtils.deleteDirectory(directory.toFile());
+            this.previous = new Ledger();
+        }
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Returns the ledger of the previous save
+     *
+     * @return the previous ledger, empty if there was no previous save
+     * */
+    public Ledger getPrevious() {
+        return this.previous;
+    }
+
+    /**
+     * Returns the ledger of this save
+     *
+     * @return the ledger being built by this save
+     * */
+    public Ledger getCurrent() {
+        return this.current;
+    }
+
+    @Override
+    protected void onWrite(String path, IOConsumer<OutputStream> writer) throws IOException {
+        Path target = resolve(path);
+        //written beside the target first, so an unchanged target is never touched
+        Path temp = Files.createTempFile(target.getParent(), ".bedifice", ".tmp");
+        MessageDigest digest = Hashing.digest();
+        long size;
+        try (CountingOutputStream out = new CountingOutputStream(
+                new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), digest))) {
+            writer.accept(out);
+            out.flush();
+            size = out.getByteCount();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String hash = Hashing.hex(digest.digest());
+        Ledger.Entry old = previous.get(path);
+        if (old != null && old.hash().equals(hash) && isIntact(target, old)) {
+            Files.delete(temp);
+            recordSkipped(size);
+        } else {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            recordWritten(size);
+        }
+        //only once the file is in place, so a failed write keeps the entry of what is still there
+        current.put(path, new Ledger.Entry(hash, size, 0));
+    }
+
+    @Override
+    protected void onCopy(Path source, String path) throws IOException {
+        Path target = resolve(path);
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+
+        Ledger.Entry old = previous.get(path);
+        boolean intact = old != null && isIntact(target, old);
+
+        //same size and timestamp as last time, or still linked: assume the source is unchanged without reading it
+        if (intact && old.size() == size && (old.sourceModified() == modified || transfer.isLinked(source, target))) {
+            current.put(path, old);
+            recordSkipped(size);
+            return;
+        }
+
+        String hash = Hashing.hash(source);
+        if (intact && old.hash().equals(hash)) {
+            recordSkipped(size);
+        } else {
+            transfer.transfer(source, target);
+            recordWritten(size);
+        }
+        current.put(path, new Ledger.Entry(hash, size, modified));
+    }
+
+    /**
+     * Deletes files from the previous save that were not saved this time, and stores the new ledger.
+     * Partial saves keep the files they did not save, and only update the ledger entries of those they did
+     * */
+    @Override
+    public void close() throws IOException {
+        this.finish(partial);
+    }
+
+    /**
+     * Keeps every file the failed save did not get to, along with its entry in the ledger, as for a partial save.
+     * Files that were saved before the failure keep their new entries, as their new contents are already in place
+     * */
+    @Override
+    public void abort() throws IOException {
+        this.finish(true);
+    }
+
+    private void finish(boolean partial) throws IOException {
+        for (String path : previous.getEntries().keySet()) {
+            if (current.get(path) != null) continue;
+            if (partial) {
+                current.put(path, previous.get(path));
+                continue;
+            }
+            Path stale = getLocation().resolve(path);
+            if (Files.deleteIfExists(stale)) {
+                recordDeleted();
+                deleteEmptyParents(stale);
+            }
+        }
+        current.save(ledgerFile);
+    }
+
+    private boolean isIntact(Path target, Ledger.Entry entry) throws IOException {
+        return Files.isRegularFile(target) && Files.size(target) == entry.size();
+    }
+
+    private void deleteEmptyParents(Path file) throws IOException {
+        Path dir = file.getParent();
+        while (dir != null && !dir.equals(getLocation())) {
+            try {
+                Files.delete(dir);
+            } catch (DirectoryNotEmptyException e) {
+                return;
+            }
+            dir = dir.getParent();
+        }
+    }
+
+    private Path resolve(String path) throws IOException {
+        Path target = getLocation().resolve(path);
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+}
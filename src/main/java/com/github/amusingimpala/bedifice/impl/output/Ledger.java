@@ -0,0 +1,94 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of the content hash of every file in a saved pack, so that later saves can skip unchanged files.
+ * Stored as one tab separated line per file: hash, size, last modified time of the source, path
+ * */
+public class Ledger {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Loads a ledger, or creates an empty one if the file does not exist
+     *
+     * @param file the ledger file
+     * @return the loaded ledger
+     * @throws IOException if the file exists but could not be read
+     * */
+    public static Ledger load(Path file) throws IOException {
+        Ledger ledger = new Ledger();
+        if (!Files.exists(file)) return ledger;
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length != 4) continue;
+            ledger.entries.put(parts[3], new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+        }
+        return ledger;
+    }
+
+    /**
+     * Writes the ledger, sorted by path
+     *
+     * @param file the ledger file
+     * @throws IOException if the file could not be written
+     * */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                Entry e = entry.getValue();
+                writer.write(e.hash() + "\t" + e.size() + "\t" + e.sourceModified() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns the entry for a file
+     *
+     * @param path path of the file in the pack
+     * @return the entry, or null if the file was not recorded
+     * */
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Records a file
+     *
+     * @param path path of the file in the pack
+     * @param entry the hash and size of the file
+     * */
+    public void put(String path, Entry entry) {
+        entries.put(path, entry);
+    }
+
+    /**
+     * Returns every recorded file
+     *
+     * @return the entries, keyed by path
+     * */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * A single recorded file
+     *
+     * @param hash the SHA-256 of the file contents
+     * @param size the size of the file in bytes
+     * @param sourceModified the last modified time of the file it was copied from, or 0 if it was generated
+     * */
+    public record Entry(String hash, long size, long sourceModified) {
+    }
+}
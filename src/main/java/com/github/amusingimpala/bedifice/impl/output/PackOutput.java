@@ -0,0 +1,287 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import com.github.amusingimpala.bedifice.api.SaveListener;
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.impl.events.FileSaveEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Destination that a pack's files are saved into.
+ * Paths are relative to the root of the pack and separated by '/'
+ * */
+public abstract class PackOutput implements Closeable {
+
+    /** Bytes recorded by the current thread, so the bytes of each file can be told apart when saving concurrently */
+    private static final ThreadLocal<long[]> THREAD_BYTES = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Path location;
+    private final Set<String> saved = ConcurrentHashMap.newKeySet();
+    private final LongAdder filesWritten = new LongAdder();
+    private final LongAdder filesSkipped = new LongAdder();
+    private final LongAdder filesDeleted = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder bytesSkipped = new LongAdder();
+    private final Queue<CompletableFuture<Void>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private Executor executor = null;
+    private Semaphore inFlight = null;
+    private SaveMonitor monitor = null;
+
+    /**
+     * Constructs a PackOutput
+     *
+     * @param location where the pack is saved to
+     * */
+    protected PackOutput(Path location) {
+        this.location = location;
+    }
+
+    /**
+     * Returns where the pack is saved to
+     *
+     * @return the location of the output
+     * */
+    public Path getLocation() {
+        return this.location;
+    }
+
+    /**
+     * Returns whether a file has already been saved during this save
+     *
+     * @param path path of the file in the pack
+     * @return true if the file was written or copied to this output
+     * */
+    public boolean exists(String path) {
+        return saved.contains(path);
+    }
+
+    /**
+     * Writes a file to the pack
+     *
+     * @param path path of the file in the pack
+     * @param writer writes the contents of the file to the stream given. The stream should not be closed by the writer
+     * @throws IOException if the file could not be written
+     * */
+    public void write(String path, IOConsumer<OutputStream> writer) throws IOException {
+        saved.add(path);
+        this.track(path, this.phase(), () -> this.onWrite(path, writer));
+    }
+
+    /**
+     * Copies a file into the pack
+     *
+     * @param source the file to copy
+     * @param path path of the file in the pack
+     * @throws IOException if the file could not be copied
+     * */
+    public void copy(Path source, String path) throws IOException {
+        saved.add(path);
+        this.track(path, this.phase(), () -> this.onCopy(source, path));
+    }
+
+    /**
+     * Reports every file saved to the monitor, along with the phase of the save it was submitted in
+     *
+     * @param monitor the monitor of the save
+     * */
+    public void monitor(SaveMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Moves the save on to its next phase, if the save is monitored
+     *
+     * @param phase the phase the save is now in
+     * */
+    public void enter(SaveListener.Phase phase) {
+        if (monitor != null) monitor.enter(phase);
+    }
+
+    /**
+     * Lets {@link #writeAsync(String, IOConsumer)} and {@link #copyAsync(Path, String)} run on the executor,
+     * with at most maxInFlight of them running at once. Until this is called they run on the calling thread
+     *
+     * @param executor the executor to run writes and copies on
+     * @param maxInFlight the most writes and copies running at once
+     * */
+    public void concurrently(Executor executor, int maxInFlight) {
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Writes a file to the pack in the background. Blocks while too many writes are already running.
+     * Failures are reported, and the first is thrown by {@link #await()}
+     *
+     * @param path path of the file in the pack
+     * @param writer writes the contents of the file to the stream given. The stream should not be closed by the writer
+     * */
+    public void writeAsync(String path, IOConsumer<OutputStream> writer) {
+        saved.add(path);
+        SaveListener.Phase phase = this.phase();
+        this.submit(path, () -> this.track(path, phase, () -> this.onWrite(path, writer)));
+    }
+
+    /**
+     * Copies a file into the pack in the background. Blocks while too many writes are already running.
+     * Failures are reported, and the first is thrown by {@link #await()}
+     *
+     * @param source the file to copy
+     * @param path path of the file in the pack
+     * */
+    public void copyAsync(Path source, String path) {
+        saved.add(path);
+        SaveListener.Phase phase = this.phase();
+        this.submit(path, () -> this.track(path, phase, () -> this.onCopy(source, path)));
+    }
+
+    /**
+     * Waits for every background write and copy to finish
+     *
+     * @throws RuntimeException the first background write or copy that failed, as an UncheckedIOException
+     *                          if it failed to write, with any later failures suppressed
+     * */
+    public void await() {
+        CompletableFuture<Void> next;
+        while ((next = pending.poll()) != null) {
+            try {
+                next.join();
+            } catch (CompletionException e) {
+                this.fail(e.getCause() instanceof RuntimeException cause ? cause : e);
+            }
+        }
+        RuntimeException failed = failure.get();
+        if (failed != null) throw failed;
+    }
+
+    private SaveListener.Phase phase() {
+        return monitor == null ? null : monitor.getPhase();
+    }
+
+    private void track(String path, SaveListener.Phase phase, IOTask task) throws IOException {
+        if (monitor == null) {
+            task.run();
+            return;
+        }
+        long[] threadBytes = THREAD_BYTES.get();
+        long before = threadBytes[0];
+        FileSaveEvent event = new FileSaveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        task.run();
+        long nanos = System.nanoTime() - start;
+        event.end();
+        monitor.fileSaved(phase, path, nanos, threadBytes[0] - before, event);
+    }
+
+    private void submit(String path, IOTask task) {
+        if (inFlight == null) {
+            this.run(path, task);
+            return;
+        }
+        inFlight.acquireUninterruptibly();
+        try {
+            pending.add(CompletableFuture.runAsync(() -> {
+                try {
+                    this.run(path, task);
+                } finally {
+                    inFlight.release();
+                }
+            }, executor));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void run(String path, IOTask task) {
+        try {
+            task.run();
+        } catch (IOException e) {
+            System.out.println("Error saving " + path + " to " + location + "!");
+            this.fail(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            System.out.println("Error saving " + path + " to " + location + "!");
+            this.fail(e);
+        }
+    }
+
+    /**
+     * Records a failed background write, keeping the first to be thrown by {@link #await()}
+     * */
+    private void fail(RuntimeException e) {
+        if (!failure.compareAndSet(null, e) && failure.get() != e) failure.get().addSuppressed(e);
+    }
+
+    /**
+     * Closes the output of a save that failed partway, instead of {@link #close()}.
+     * Outputs keeping track of a previous save should keep what they did not get to save this time
+     *
+     * @throws IOException if the output could not be closed
+     * */
+    public void abort() throws IOException {
+        this.close();
+    }
+
+    /**
+     * Creates the result of this save, should only be called once the output is closed
+     *
+     * @param packName the name of the saved pack
+     * @return the result of the save
+     * */
+    public SaveResult result(String packName) {
+        return new SaveResult(
+                packName,
+                location,
+                filesWritten.intValue(),
+                filesSkipped.intValue(),
+                filesDeleted.intValue(),
+                bytesWritten.sum(),
+                bytesSkipped.sum()
+        );
+    }
+
+    /**
+     * Returns the paths of every file saved so far
+     *
+     * @return the paths saved
+     * */
+    protected Set<String> getSaved() {
+        return this.saved;
+    }
+
+    protected void recordWritten(long bytes) {
+        filesWritten.increment();
+        bytesWritten.add(bytes);
+        THREAD_BYTES.get()[0] += bytes;
+    }
+
+    protected void recordSkipped(long bytes) {
+        filesSkipped.increment();
+        bytesSkipped.add(bytes);
+        THREAD_BYTES.get()[0] += bytes;
+    }
+
+    protected void recordDeleted() {
+        filesDeleted.increment();
+    }
+
+    protected abstract void onWrite(String path, IOConsumer<OutputStream> writer) throws IOException;
+
+    protected abstract void onCopy(Path source, String path) throws IOException;
+
+    @FunctionalInterface
+    private interface IOTask {
+        void run() throws IOException;
+    }
+}
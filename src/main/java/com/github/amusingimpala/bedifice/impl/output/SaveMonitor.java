@@ -0,0 +1,175 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import com.github.amusingimpala.bedifice.api.SaveListener;
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.impl.events.FileSaveEvent;
+import com.github.amusingimpala.bedifice.impl.events.PackSaveEvent;
+import com.github.amusingimpala.bedifice.impl.events.SavePhaseEvent;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times the phases and files of a single pack save, reporting them to listeners and as JFR events.
+ * Cached saves that were skipped are reported too, so every save of a pack is seen.
+ * Phases are entered by the saving thread, while files may be saved from any thread.
+ * A phase lasts until it is left and every file submitted during it has been saved,
+ * so files written in the background are counted in the phase that submitted them
+ * */
+public final class SaveMonitor {
+
+    private final String packName;
+    private final List<SaveListener> listeners;
+    private final long start = System.nanoTime();
+    private final PackSaveEvent packEvent = new PackSaveEvent();
+    private final Map<SaveListener.Phase, PhaseRecord> phases = new EnumMap<>(SaveListener.Phase.class);
+    private volatile SaveListener.Phase phase = null;
+
+    /**
+     * Starts monitoring a save
+     *
+     * @param packName the name of the pack being saved
+     * @param listeners the listeners to report to
+     * */
+    public SaveMonitor(String packName, List<SaveListener> listeners) {
+        this.packName = packName;
+        this.listeners = listeners;
+        for (SaveListener.Phase phase : SaveListener.Phase.values()) {
+            phases.put(phase, new PhaseRecord());
+        }
+        packEvent.begin();
+    }
+
+    /**
+     * Ends the current phase, and starts the next
+     *
+     * @param phase the phase the save is now in
+     * */
+    public void enter(SaveListener.Phase phase) {
+        this.exit();
+        PhaseRecord record = phases.get(phase);
+        record.entered = true;
+        record.event.begin();
+        record.start = System.nanoTime();
+        record.lastFile.set(record.start);
+        this.phase = phase;
+    }
+
+    /**
+     * Returns the phase the save is in
+     *
+     * @return the current phase, or null if no phase has been entered yet
+     * */
+    public SaveListener.Phase getPhase() {
+        return this.phase;
+    }
+
+    /**
+     * Reports a saved file
+     *
+     * @param phase the phase the file was saved in
+     * @param path path of the file in the pack
+     * @param nanos how long saving the file took, in nanoseconds
+     * @param bytes the number of bytes written or skipped
+     * @param event the ended JFR event of the file, to be committed
+     * */
+    public void fileSaved(SaveListener.Phase phase, String path, long nanos, long bytes, FileSaveEvent event) {
+        if (phase != null) {
+            PhaseRecord record = phases.get(phase);
+            record.bytes.add(bytes);
+            long now = System.nanoTime();
+            record.lastFile.accumulateAndGet(now, (last, time) -> time - last > 0 ? time : last);
+        }
+        if (event.shouldCommit()) {
+            event.pack = packName;
+            event.path = path;
+            event.phase = phase == null ? null : phase.name();
+            event.bytes = bytes;
+            event.commit();
+        }
+        for (SaveListener listener : listeners) {
+            listener.fileSaved(packName, path, nanos, bytes);
+        }
+    }
+
+    /**
+     * Ends the current phase and reports every phase and the whole save
+     *
+     * @param result the result of the save
+     * */
+    public void finish(SaveResult result) {
+        this.exit();
+        this.phase = null;
+        for (Map.Entry<SaveListener.Phase, PhaseRecord> entry : phases.entrySet()) {
+            PhaseRecord record = entry.getValue();
+            if (!record.entered) continue;
+            long bytes = record.bytes.sum();
+            long end = record.lastFile.get();
+            long nanos = Math.max(end - record.start, record.exit - record.start);
+            if (record.event.shouldCommit()) {
+                record.event.pack = packName;
+                record.event.phase = entry.getKey().name();
+                record.event.bytes = bytes;
+                record.event.span = nanos;
+                record.event.commit();
+            }
+            for (SaveListener listener : listeners) {
+                listener.phaseSaved(packName, entry.getKey(), nanos, bytes);
+            }
+        }
+
+        this.commit(result, false);
+        long nanos = System.nanoTime() - start;
+        for (SaveListener listener : listeners) {
+            listener.packSaved(result, nanos);
+        }
+    }
+
+    /**
+     * Reports a save skipped because the pack was unchanged. Phases are not reported, as none were saved
+     *
+     * @param result the result of the skipped save
+     * */
+    public void skipped(SaveResult result) {
+        this.exit();
+        this.phase = null;
+        this.commit(result, true);
+        long nanos = System.nanoTime() - start;
+        for (SaveListener listener : listeners) {
+            listener.packSkipped(result, nanos);
+        }
+    }
+
+    private void commit(SaveResult result, boolean cached) {
+        packEvent.end();
+        if (packEvent.shouldCommit()) {
+            packEvent.pack = packName;
+            packEvent.output = result.output().toString();
+            packEvent.cached = cached;
+            packEvent.filesWritten = result.filesWritten();
+            packEvent.filesSkipped = result.filesSkipped();
+            packEvent.bytesWritten = result.bytesWritten();
+            packEvent.bytesSkipped = result.bytesSkipped();
+            packEvent.commit();
+        }
+    }
+
+    private void exit() {
+        if (phase == null) return;
+        PhaseRecord record = phases.get(phase);
+        record.event.end();
+        record.exit = System.nanoTime();
+    }
+
+    private static final class PhaseRecord {
+        private final SavePhaseEvent event = new SavePhaseEvent();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLong lastFile = new AtomicLong();
+        private boolean entered = false;
+        private long start;
+        private long exit;
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.amusingimpala.bedifice.impl.output;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Saves a pack straight into a zip archive (.mcpack / .mcaddon), without an intermediate directory.
+ * Already compressed formats, such as PNGs, are stored as is, and everything else is deflated.
+ * Deflated entries are streamed into the archive while holding its lock, so are added one at a time, while
+ * generated stored entries are buffered outside the lock, as their CRC must be known before they start
+ * */
+public class ZipOutput extends PackOutput {
+
+    private static final Set<String> STORED_EXTENSIONS = Set.of("png", "jpg", "jpeg", "ogg", "fsb", "zip", "mcpack");
+
+    private final ZipOutputStream zip;
+    private final String prefix;
+    private final boolean ownsZip;
+
+    /**
+     * Constructs a ZipOutput that saves into a new archive file
+     *
+     * @param archive the archive file to create
+     * @throws IOException if the archive could not be created
+     * */
+    public ZipOutput(Path archive) throws IOException {
+        super(archive);
+        Files.createDirectories(archive.toAbsolutePath().getParent());
+        this.zip = new ZipOutputStream(Files.newOutputStream(archive));
+        this.prefix = "";
+        this.ownsZip = true;
+    }
+
+    /**
+     * Constructs a ZipOutput that saves into a folder of an archive shared with other packs, such as a .mcaddon.
+     * Closing this output does not close the archive
+     *
+     * @param archive the location of the archive
+     * @param zip the stream of the shared archive
+     * @param folder the folder in the archive to save into
+     * */
+    public ZipOutput(Path archive, ZipOutputStream zip, String folder) {
+        super(archive);
+        this.zip = zip;
+        this.prefix = folder + "/";
+        this.ownsZip = false;
+    }
+
+    @Override
+    protected void onWrite(String path, IOConsumer<OutputStream> writer) throws IOException {
+        if (isStored(path)) {
+            //stored entries need their size and CRC up front, so are buffered once, outside the lock
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            CheckedOutputStream out = new CheckedOutputStream(buffer, new CRC32());
+            writer.accept(out);
+            synchronized (zip) {
+                zip.putNextEntry(storedEntry(path, buffer.size(), out.getChecksum().getValue()));
+                buffer.writeTo(zip);
+                zip.closeEntry();
+            }
+            recordWritten(buffer.size());
+        } else {
+            //deflated entries are streamed straight into the archive, so no file is ever held in memory whole
+            synchronized (zip) {
+                zip.putNextEntry(new ZipEntry(prefix + path));
+                CountingOutputStream out = new CountingOutputStream(CloseShieldOutputStream.wrap(zip));
+                writer.accept(out);
+                zip.closeEntry();
+                recordWritten(out.getByteCount());
+            }
+        }
+    }
+
+    @Override
+    protected void onCopy(Path source, String path) throws IOException {
+        long size = Files.size(source);
+        if (isStored(path)) {
+            long crc = crc(source);
+            synchronized (zip) {
+                zip.putNextEntry(storedEntry(path, size, crc));
+                Files.copy(source, zip);
+                zip.closeEntry();
+            }
+        } else {
+            synchronized (zip) {
+                zip.putNextEntry(new ZipEntry(prefix + path));
+                Files.copy(source, zip);
+                zip.closeEntry();
+            }
+        }
+        recordWritten(size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsZip) zip.close();
+    }
+
+    private ZipEntry storedEntry(String path, long size, long crc) {
+        ZipEntry entry = new ZipEntry(prefix + path);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc);
+        return entry;
+    }
+
+    private static long crc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    private static boolean isStored(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot != -1 && STORED_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
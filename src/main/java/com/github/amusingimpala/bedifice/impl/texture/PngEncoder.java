@@ -0,0 +1,325 @@
+package com.github.amusingimpala.bedifice.impl.texture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes ARGB pixel buffers into PNGs as small as it can losslessly manage.
+ * Images with at most 256 colors are written with a palette of the smallest bit depth that fits,
+ * opaque images without alpha, and several filter and deflate strategies are tried, keeping the smallest
+ * */
+public final class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int[] DEFLATE_STRATEGIES = {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED};
+
+    private PngEncoder() {
+    }
+
+    /**
+     * Encodes the pixels into a PNG, with a single compression pass
+     *
+     * @param argb the pixels, row by row, as 0xAARRGGBB
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the PNG file contents
+     * */
+    public static byte[] encode(int[] argb, int width, int height) {
+        return encode(argb, width, height, false);
+    }
+
+    /**
+     * Encodes the pixels into a PNG
+     *
+     * @param argb the pixels, row by row, as 0xAARRGGBB
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param thorough whether to try every filter and deflate strategy combination, which is several times slower
+     * @return the PNG file contents
+     * */
+    public static byte[] encode(int[] argb, int width, int height, boolean thorough) {
+        if (argb.length != width * height) throw new IllegalArgumentException("Pixel buffer does not match the image size!");
+
+        int[] palette = palette(argb);
+        boolean opaque = isOpaque(argb);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try {
+            file.write(SIGNATURE);
+            byte[] idat;
+            if (palette != null) {
+                int bitDepth = palette.length <= 2 ? 1 : palette.length <= 4 ? 2 : palette.length <= 16 ? 4 : 8;
+                chunk(file, "IHDR", header(width, height, bitDepth, 3));
+                chunk(file, "PLTE", paletteChunk(palette));
+                byte[] trns = transparencyChunk(palette);
+                if (trns.length > 0) chunk(file, "tRNS", trns);
+                //filtering rarely helps below 8 bits per pixel, so palette images are left unfiltered
+                idat = compress(indexedRows(argb, width, height, palette, bitDepth), thorough);
+            } else {
+                int bpp = opaque ? 3 : 4;
+                chunk(file, "IHDR", header(width, height, 8, opaque ? 2 : 6));
+                byte[] raw = trueColorRows(argb, width, height, bpp);
+                //adaptive filtering usually wins, but noisy images often compress better unfiltered
+                byte[] filtered = compress(adaptiveFilter(raw, width * bpp, height, bpp), thorough);
+                byte[] unfiltered = compress(raw, thorough);
+                idat = filtered.length < unfiltered.length ? filtered : unfiltered;
+            }
+            chunk(file, "IDAT", idat);
+            chunk(file, "IEND", new byte[0]);
+        } catch (IOException e) {
+            //ByteArrayOutputStream never throws
+            throw new UncheckedIOException(e);
+        }
+        return file.toByteArray();
+    }
+
+    /**
+     * Writes a single chunk
+     *
+     * @param out the stream to write to
+     * @param type the four letter chunk type
+     * @param data the chunk's data
+     * @throws IOException if writing fails
+     * */
+    static void chunk(ByteArrayOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(data.length);
+        dataOut.write(typeBytes);
+        dataOut.write(data);
+        dataOut.writeInt((int) crc.getValue());
+    }
+
+    static byte[] signature() {
+        return SIGNATURE.clone();
+    }
+
+    private static byte[] header(int width, int height, int bitDepth, int colorType) {
+        return new byte[]{
+                (byte) (width >>> 24), (byte) (width >>> 16), (byte) (width >>> 8), (byte) width,
+                (byte) (height >>> 24), (byte) (height >>> 16), (byte) (height >>> 8), (byte) height,
+                (byte) bitDepth, (byte) colorType, 0, 0, 0
+        };
+    }
+
+    private static boolean isOpaque(int[] argb) {
+        for (int pixel : argb) {
+            if ((pixel >>> 24) != 0xFF) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the distinct colors of the image, translucent ones first so the tRNS chunk stays short
+     *
+     * @return the palette, or null if there are more than 256 colors
+     * */
+    private static int[] palette(int[] argb) {
+        ColorTable table = new ColorTable();
+        int[] colors = new int[256];
+        int count = 0;
+        for (int pixel : argb) {
+            if (table.indexOf(pixel) != -1) continue;
+            if (count == 256) return null;
+            table.put(pixel, count);
+            colors[count++] = pixel;
+        }
+
+        int[] palette = Arrays.copyOf(colors, count);
+        //flipping the top bit sorts alpha as unsigned, so translucent colors come first
+        for (int i = 0; i < palette.length; i++) palette[i] ^= 0x80000000;
+        Arrays.sort(palette);
+        for (int i = 0; i < palette.length; i++) palette[i] ^= 0x80000000;
+        return palette;
+    }
+
+    private static byte[] paletteChunk(int[] palette) {
+        byte[] data = new byte[palette.length * 3];
+        for (int i = 0; i < palette.length; i++) {
+            data[i * 3] = (byte) (palette[i] >>> 16);
+            data[i * 3 + 1] = (byte) (palette[i] >>> 8);
+            data[i * 3 + 2] = (byte) palette[i];
+        }
+        return data;
+    }
+
+    private static byte[] transparencyChunk(int[] palette) {
+        int translucent = 0;
+        while (translucent < palette.length && (palette[translucent] >>> 24) != 0xFF) translucent++;
+        byte[] data = new byte[translucent];
+        for (int i = 0; i < translucent; i++) data[i] = (byte) (palette[i] >>> 24);
+        return data;
+    }
+
+    private static byte[] indexedRows(int[] argb, int width, int height, int[] palette, int bitDepth) {
+        ColorTable table = new ColorTable();
+        for (int i = 0; i < palette.length; i++) table.put(palette[i], i);
+
+        int rowBytes = (width * bitDepth + 7) / 8;
+        int pixelsPerByte = 8 / bitDepth;
+        byte[] raw = new byte[(rowBytes + 1) * height];
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * (rowBytes + 1) + 1;
+            for (int x = 0; x < width; x++) {
+                int index = table.indexOf(argb[y * width + x]);
+                int shift = 8 - bitDepth * (x % pixelsPerByte + 1);
+                raw[rowStart + x / pixelsPerByte] |= (byte) (index << shift);
+            }
+        }
+        return raw;
+    }
+
+    private static byte[] trueColorRows(int[] argb, int width, int height, int bpp) {
+        int rowBytes = width * bpp;
+        byte[] raw = new byte[(rowBytes + 1) * height];
+        for (int y = 0; y < height; y++) {
+            int i = y * (rowBytes + 1) + 1;
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[y * width + x];
+                raw[i++] = (byte) (pixel >>> 16);
+                raw[i++] = (byte) (pixel >>> 8);
+                raw[i++] = (byte) pixel;
+                if (bpp == 4) raw[i++] = (byte) (pixel >>> 24);
+            }
+        }
+        return raw;
+    }
+
+    /**
+     * Filters every row with whichever of the five PNG filters gives the smallest sum of absolute values
+     * */
+    private static byte[] adaptiveFilter(byte[] raw, int rowBytes, int height, int bpp) {
+        int stride = rowBytes + 1;
+        byte[] out = new byte[raw.length];
+        byte[] previous = new byte[rowBytes];
+        byte[] current = new byte[rowBytes];
+        byte[][] filtered = new byte[5][rowBytes];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(raw, y * stride + 1, current, 0, rowBytes);
+
+            byte[] none = filtered[0];
+            byte[] sub = filtered[1];
+            byte[] up = filtered[2];
+            byte[] average = filtered[3];
+            byte[] paeth = filtered[4];
+            for (int i = 0; i < bpp; i++) {
+                int x = current[i] & 0xFF;
+                int b = previous[i] & 0xFF;
+                none[i] = (byte) x;
+                sub[i] = (byte) x;
+                up[i] = (byte) (x - b);
+                average[i] = (byte) (x - (b >>> 1));
+                paeth[i] = (byte) (x - b);
+            }
+            for (int i = bpp; i < rowBytes; i++) {
+                int x = current[i] & 0xFF;
+                int a = current[i - bpp] & 0xFF;
+                int b = previous[i] & 0xFF;
+                int c = previous[i - bpp] & 0xFF;
+                none[i] = (byte) x;
+                sub[i] = (byte) (x - a);
+                up[i] = (byte) (x - b);
+                average[i] = (byte) (x - ((a + b) >>> 1));
+                paeth[i] = (byte) (x - paeth(a, b, c));
+            }
+
+            int best = 0;
+            long bestSum = Long.MAX_VALUE;
+            for (int filter = 0; filter < 5; filter++) {
+                long sum = 0;
+                for (byte value : filtered[filter]) sum += Math.abs(value);
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    best = filter;
+                }
+            }
+            out[y * stride] = (byte) best;
+            System.arraycopy(filtered[best], 0, out, y * stride + 1, rowBytes);
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return out;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        return pb <= pc ? b : c;
+    }
+
+    private static byte[] compress(byte[] data, boolean thorough) {
+        if (!thorough) return deflate(data, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+
+        byte[] best = null;
+        for (int strategy : DEFLATE_STRATEGIES) {
+            byte[] compressed = deflate(data, Deflater.BEST_COMPRESSION, strategy);
+            if (best == null || compressed.length < best.length) best = compressed;
+        }
+        return best;
+    }
+
+    private static byte[] deflate(byte[] data, int level, int strategy) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setStrategy(strategy);
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Open addressing map of up to 256 colors to their palette index
+     * */
+    private static final class ColorTable {
+
+        private final int[] colors = new int[1024];
+        private final short[] indices = new short[1024];
+
+        private ColorTable() {
+            Arrays.fill(indices, (short) -1);
+        }
+
+        private int indexOf(int color) {
+            int slot = slot(color);
+            while (indices[slot] != -1) {
+                if (colors[slot] == color) return indices[slot];
+                slot = (slot + 1) & 1023;
+            }
+            return -1;
+        }
+
+        private void put(int color, int index) {
+            int slot = slot(color);
+            while (indices[slot] != -1 && colors[slot] != color) slot = (slot + 1) & 1023;
+            colors[slot] = color;
+            indices[slot] = (short) index;
+        }
+
+        private static int slot(int color) {
+            return (color * 0x9E3779B9) >>> 22;
+        }
+    }
+}
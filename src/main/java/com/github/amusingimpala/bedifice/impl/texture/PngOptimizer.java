@@ -0,0 +1,94 @@
+package com.github.amusingimpala.bedifice.impl.texture;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Losslessly shrinks PNG files, by stripping ancillary chunks and re-encoding the pixels with {@link PngEncoder}.
+ * The re-encoded image is only used if it is smaller and decodes to exactly the same pixels
+ * */
+public final class PngOptimizer {
+
+    private PngOptimizer() {
+    }
+
+    /**
+     * Optimizes a PNG
+     *
+     * @param png the contents of the PNG file
+     * @return the smallest lossless encoding found, which may be the original
+     * @throws IOException if the file is not a valid PNG
+     * */
+    public static byte[] optimize(byte[] png) throws IOException {
+        if (png.length < 8 || !Arrays.equals(png, 0, 8, PngEncoder.signature(), 0, 8)) {
+            throw new IOException("Not a PNG file!");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(png, 8, png.length - 8);
+
+        byte[] header = null;
+        byte[] palette = null;
+        byte[] transparency = null;
+        ByteArrayOutputStream data = new ByteArrayOutputStream(png.length);
+        while (buffer.remaining() >= 12) {
+            int length = buffer.getInt();
+            byte[] type = new byte[4];
+            buffer.get(type);
+            if (length < 0 || length > buffer.remaining() - 4) throw new IOException("Truncated PNG chunk!");
+            byte[] chunk = new byte[length];
+            buffer.get(chunk);
+            buffer.getInt(); //crc
+
+            //only critical chunks, and tRNS as it changes the pixels, are kept
+            switch (new String(type, StandardCharsets.US_ASCII)) {
+                case "IHDR" -> header = chunk;
+                case "PLTE" -> palette = chunk;
+                case "tRNS" -> transparency = chunk;
+                case "IDAT" -> data.write(chunk);
+                default -> {
+                }
+            }
+        }
+        if (header == null || header.length != 13) throw new IOException("PNG is missing its header!");
+
+        ByteArrayOutputStream stripped = new ByteArrayOutputStream(png.length);
+        stripped.write(PngEncoder.signature());
+        PngEncoder.chunk(stripped, "IHDR", header);
+        if (palette != null) PngEncoder.chunk(stripped, "PLTE", palette);
+        if (transparency != null) PngEncoder.chunk(stripped, "tRNS", transparency);
+        PngEncoder.chunk(stripped, "IDAT", data.toByteArray());
+        PngEncoder.chunk(stripped, "IEND", new byte[0]);
+        byte[] best = stripped.size() < png.length ? stripped.toByteArray() : png;
+
+        //16 bit and grayscale images do not survive a round trip through 8 bit ARGB, so only their chunks are stripped
+        int bitDepth = header[8];
+        int colorType = header[9];
+        if (bitDepth <= 8 && (colorType == 2 || colorType == 3 || colorType == 6)) {
+            BufferedImage image = decode(png);
+            if (image != null) {
+                int width = image.getWidth();
+                int height = image.getHeight();
+                int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+                byte[] encoded = PngEncoder.encode(pixels, width, height, true);
+                if (encoded.length < best.length) {
+                    BufferedImage check = decode(encoded);
+                    if (check != null && Arrays.equals(pixels, check.getRGB(0, 0, width, height, null, 0, width))) {
+                        best = encoded;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static BufferedImage decode(byte[] png) throws IOException {
+        //memory cached stream, so ImageIO does not create temporary files. ImageIO closes it once read
+        return ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(png)));
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.amusingimpala.bedifice.impl.texture;
+
+import com.github.amusingimpala.bedifice.api.util.Texture;
+import com.github.amusingimpala.bedifice.impl.StreamingBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Many small textures stitched into a few pages, along with where each texture was put.
+ * Textures are packed onto shelves, tallest first, which is fast and wastes little space when textures are of
+ * similar sizes, and the pages are then drawn in parallel. Builds into the map of the atlas
+ * */
+public final class TextureAtlas implements StreamingBuilder {
+
+    private final String path;
+    private final Texture[] pages;
+    private final Map<String, Slot> slots;
+
+    private TextureAtlas(String path, Texture[] pages, Map<String, Slot> slots) {
+        this.path = path;
+        this.pages = pages;
+        this.slots = slots;
+    }
+
+    /**
+     * Packs the textures onto pages, and draws the pages
+     *
+     * @param path the path of the atlas in the pack, without the extension. Pages are saved to [path]_[page].png
+     * @param pageSize the width and most height of each page, in pixels
+     * @param textures the textures to stitch, keyed by their path in the pack without the extension
+     * @return the stitched atlas
+     * */
+    public static TextureAtlas stitch(String path, int pageSize, Map<String, Texture> textures) {
+        if (pageSize < 1) throw new IllegalArgumentException("Atlas page size must be at least 1!");
+        List<String> names = new ArrayList<>(textures.keySet());
+        for (String name : names) {
+            Texture texture = textures.get(name);
+            if (texture.getWidth() > pageSize || texture.getHeight() > pageSize) {
+                throw new IllegalArgumentException("Texture " + name + " is larger than the atlas page size of " + pageSize + "!");
+            }
+        }
+        //tallest first, so each shelf is as tall as its first texture
+        names.sort(Comparator.<String>comparingInt(name -> -textures.get(name).getHeight())
+                .thenComparingInt(name -> -textures.get(name).getWidth())
+                .thenComparing(Comparator.naturalOrder()));
+
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        List<Integer> heights = new ArrayList<>();
+        int page = 0, x = 0, y = 0, shelf = 0;
+        for (String name : names) {
+            Texture texture = textures.get(name);
+            if (x + texture.getWidth() > pageSize) {
+                y += shelf;
+                x = 0;
+                shelf = 0;
+            }
+            if (y + texture.getHeight() > pageSize) {
+                heights.add(y);
+                page++;
+                x = 0;
+                y = 0;
+                shelf = 0;
+            }
+            slots.put(name, new Slot(page, x, y, texture.getWidth(), texture.getHeight()));
+            x += texture.getWidth();
+            shelf = Math.max(shelf, texture.getHeight());
+        }
+        if (!names.isEmpty()) heights.add(y + shelf);
+
+        //pages are only as tall as needed, rounded up to a power of two
+        List<List<String>> onPage = new ArrayList<>();
+        for (int i = 0; i < heights.size(); i++) onPage.add(new ArrayList<>());
+        slots.forEach((name, slot) -> onPage.get(slot.page()).add(name));
+        Texture[] pages = new Texture[heights.size()];
+        IntStream.range(0, pages.length).parallel().forEach(i -> {
+            int used = heights.get(i);
+            int height = Integer.highestOneBit(used);
+            if (height < used) height = Math.min(pageSize, height << 1);
+            Texture drawn = new Texture(pageSize, height);
+            for (String name : onPage.get(i)) draw(textures.get(name), drawn, slots.get(name));
+            pages[i] = drawn;
+        });
+
+        return new TextureAtlas(path, pages, slots);
+    }
+
+    private static void draw(Texture texture, Texture page, Slot slot) {
+        int[] from = texture.getPixels();
+        int[] to = page.getPixels();
+        for (int row = 0; row < slot.height(); row++) {
+            System.arraycopy(from, row * slot.width(), to, (slot.y() + row) * page.getWidth() + slot.x(), slot.width());
+        }
+    }
+
+    /**
+     * @return the drawn pages
+     * */
+    public List<Texture> getPages() {
+        return List.of(pages);
+    }
+
+    /**
+     * Returns the path of a page in the pack
+     *
+     * @param page the index of the page
+     * @return the path, without the extension
+     * */
+    public String getPagePath(int page) {
+        return path + "_" + page;
+    }
+
+    /**
+     * @return where each texture was put, keyed by its path in the pack without the extension
+     * */
+    public Map<String, Slot> getSlots() {
+        return Collections.unmodifiableMap(slots);
+    }
+
+    /**
+     * Builds the map of the atlas, listing the pages and where each texture was put
+     *
+     * @return the built map JsonObject
+     * */
+    @Override
+    public JsonObject build() {
+        JsonObject root = new JsonObject();
+
+        JsonArray pages = new JsonArray();
+        for (int i = 0; i < this.pages.length; i++) pages.add(this.getPagePath(i));
+        root.add("pages", pages);
+
+        JsonObject textures = new JsonObject();
+        slots.forEach((name, slot) -> {
+            JsonObject texture = new JsonObject();
+            texture.add("page", new JsonPrimitive(slot.page()));
+            JsonArray uv = new JsonArray();
+            uv.add(slot.x());
+            uv.add(slot.y());
+            texture.add("uv", uv);
+            JsonArray size = new JsonArray();
+            size.add(slot.width());
+            size.add(slot.height());
+            texture.add("uv_size", size);
+            textures.add(name, texture);
+        });
+        root.add("textures", textures);
+
+        return root;
+    }
+
+    /**
+     * Writes the map of the atlas straight to the writer
+     * */
+    @Override
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("pages").beginArray();
+        for (int i = 0; i < pages.length; i++) writer.value(this.getPagePath(i));
+        writer.endArray();
+
+        writer.name("textures").beginObject();
+        for (Map.Entry<String, Slot> texture : slots.entrySet()) {
+            Slot slot = texture.getValue();
+            writer.name(texture.getKey()).beginObject();
+            writer.name("page").value(slot.page());
+            writer.name("uv").beginArray().value(slot.x()).value(slot.y()).endArray();
+            writer.name("uv_size").beginArray().value(slot.width()).value(slot.height()).endArray();
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    /**
+     * Where a texture was put in the atlas
+     *
+     * @param page the index of the page
+     * @param x the left edge, in pixels
+     * @param y the top edge, in pixels
+     * @param width the width, in pixels
+     * @param height the height, in pixels
+     * */
+    public record Slot(int page, int x, int y, int width, int height) {
+    }
+}
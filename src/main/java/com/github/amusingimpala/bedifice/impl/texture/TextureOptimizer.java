@@ -0,0 +1,77 @@
+package com.github.amusingimpala.bedifice.impl.texture;
+
+import com.github.amusingimpala.bedifice.impl.Hashing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Optimizes the PNGs of a pack in parallel with {@link PngOptimizer}.
+ * Results are cached by the hash of the original file, so unchanged images are only ever optimized once
+ * */
+public class TextureOptimizer {
+
+    /** Bumped whenever the optimizer's output changes, so old cache entries are not reused */
+    private static final String VERSION = "png-1";
+
+    private final Path cacheFolder;
+
+    /**
+     * Constructs a TextureOptimizer
+     *
+     * @param cacheFolder the folder optimized textures are cached in
+     * */
+    public TextureOptimizer(Path cacheFolder) {
+        this.cacheFolder = cacheFolder.resolve(VERSION);
+    }
+
+    /**
+     * Optimizes every PNG of the files given, in parallel
+     *
+     * @param files the files of the pack, keyed by their path in the pack
+     * @return the same files, with every PNG replaced by its optimized version
+     * */
+    public Map<String, Path> optimize(Map<String, Path> files) {
+        List<Map.Entry<String, Path>> entries = new ArrayList<>(files.entrySet());
+        Path[] optimized = new Path[entries.size()];
+        IntStream.range(0, entries.size()).parallel().forEach(i -> {
+            Map.Entry<String, Path> entry = entries.get(i);
+            optimized[i] = entry.getKey().toLowerCase(Locale.ROOT).endsWith(".png")
+                    ? this.optimize(entry.getValue())
+                    : entry.getValue();
+        });
+
+        Map<String, Path> result = new LinkedHashMap<>();
+        for (int i = 0; i < optimized.length; i++) result.put(entries.get(i).getKey(), optimized[i]);
+        return result;
+    }
+
+    /**
+     * Optimizes a single PNG, or finds it in the cache
+     *
+     * @param source the PNG to optimize
+     * @return the cached optimized PNG, or the source if it could not be optimized
+     * */
+    public Path optimize(Path source) {
+        try {
+            Path cached = cacheFolder.resolve(Hashing.hash(source) + ".png");
+            if (!Files.exists(cached)) {
+                byte[] optimized = PngOptimizer.optimize(Files.readAllBytes(source));
+                Files.createDirectories(cacheFolder);
+                //other packs may be optimizing the same image, so it is moved into place in one step
+                Path temp = Files.createTempFile(cacheFolder, ".png", ".tmp");
+                Files.write(temp, optimized);
+                Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return cached;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to optimize texture " + source + ", including it as is");
+            e.printStackTrace();
+            return source;
+        }
+    }
+}
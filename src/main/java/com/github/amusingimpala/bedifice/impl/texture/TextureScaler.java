@@ -0,0 +1,123 @@
+package com.github.amusingimpala.bedifice.impl.texture;
+
+import com.github.amusingimpala.bedifice.api.util.Texture;
+import com.github.amusingimpala.bedifice.impl.Hashing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Scales down the PNGs of a pack in parallel, such as for a lower resolution subpack.
+ * Results are cached by the hash of the original file, so unchanged images are only ever scaled once per factor
+ * */
+public class TextureScaler {
+
+    /** Bumped whenever the scaler's output changes, so old cache entries are not reused */
+    private static final String VERSION = "scale-1";
+
+    private final Path cacheFolder;
+    private final int factor;
+
+    /**
+     * Constructs a TextureScaler
+     *
+     * @param cacheFolder the folder scaled textures are cached in
+     * @param factor how many times smaller to make each side of the textures
+     * */
+    public TextureScaler(Path cacheFolder, int factor) {
+        if (factor < 2) throw new IllegalArgumentException("Textures must be scaled down by a factor of at least 2!");
+        this.cacheFolder = cacheFolder.resolve(VERSION).resolve(Integer.toString(factor));
+        this.factor = factor;
+    }
+
+    /**
+     * Scales down every PNG of the files given, in parallel
+     *
+     * @param files the files of the pack, keyed by their path in the pack
+     * @return the scaled PNGs, keyed by their path in the pack. Other files and PNGs that failed to scale are left out
+     * */
+    public Map<String, Path> scale(Map<String, Path> files) {
+        List<Map.Entry<String, Path>> entries = new ArrayList<>();
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            if (entry.getKey().toLowerCase(Locale.ROOT).endsWith(".png")) entries.add(entry);
+        }
+        Path[] scaled = new Path[entries.size()];
+        IntStream.range(0, entries.size()).parallel().forEach(i -> scaled[i] = this.scale(entries.get(i).getValue()));
+
+        Map<String, Path> result = new LinkedHashMap<>();
+        for (int i = 0; i < scaled.length; i++) {
+            if (scaled[i] != null) result.put(entries.get(i).getKey(), scaled[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Scales down a single PNG, or finds it in the cache
+     *
+     * @param source the PNG to scale
+     * @return the cached scaled PNG, or null if it could not be scaled
+     * */
+    public Path scale(Path source) {
+        try {
+            Path cached = cacheFolder.resolve(Hashing.hash(source) + ".png");
+            if (!Files.exists(cached)) {
+                byte[] scaled = this.scale(Texture.load(source)).toPng();
+                Files.createDirectories(cacheFolder);
+                //other packs may be scaling the same image, so it is moved into place in one step
+                Path temp = Files.createTempFile(cacheFolder, ".png", ".tmp");
+                Files.write(temp, scaled);
+                Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return cached;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to scale texture " + source + ", leaving it out");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Scales down a texture by averaging each square of factor by factor pixels.
+     * Colors are weighted by their alpha, so transparent pixels do not darken the edges of what is left
+     *
+     * @param texture the texture to scale
+     * @return the scaled texture, at least 1 pixel in each direction
+     * */
+    public Texture scale(Texture texture) {
+        int width = texture.getWidth();
+        int height = texture.getHeight();
+        int scaledWidth = Math.max(1, (width + factor - 1) / factor);
+        int scaledHeight = Math.max(1, (height + factor - 1) / factor);
+        int[] from = texture.getPixels();
+        int[] to = new int[scaledWidth * scaledHeight];
+
+        for (int y = 0; y < scaledHeight; y++) {
+            for (int x = 0; x < scaledWidth; x++) {
+                long a = 0, r = 0, g = 0, b = 0;
+                int count = 0;
+                for (int sy = y * factor; sy < Math.min(height, (y + 1) * factor); sy++) {
+                    for (int sx = x * factor; sx < Math.min(width, (x + 1) * factor); sx++) {
+                        int argb = from[sy * width + sx];
+                        int alpha = argb >>> 24;
+                        a += alpha;
+                        r += (long) ((argb >> 16) & 0xFF) * alpha;
+                        g += (long) ((argb >> 8) & 0xFF) * alpha;
+                        b += (long) (argb & 0xFF) * alpha;
+                        count++;
+                    }
+                }
+                if (a == 0 || count == 0) continue;
+                int alpha = (int) ((a + count / 2) / count);
+                to[y * scaledWidth + x] = alpha << 24
+                        | (int) ((r + a / 2) / a) << 16
+                        | (int) ((g + a / 2) / a) << 8
+                        | (int) ((b + a / 2) / a);
+            }
+        }
+        return new Texture(scaledWidth, scaledHeight, to);
+    }
+}
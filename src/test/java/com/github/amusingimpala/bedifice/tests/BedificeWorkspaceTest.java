@@ -0,0 +1,82 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.*;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BedificeWorkspaceTest {
+
+    private static final Vector3 VERSION = new Vector3(1, 0, 0);
+
+    private final boolean hadOut = Files.exists(Paths.get("out"));
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        if (!hadOut) {
+            FileUtils.deleteDirectory(Paths.get("out").toFile());
+            return;
+        }
+        for (String folder : List.of("workspace_test", "workspace_test_other")) {
+            FileUtils.deleteDirectory(Paths.get("out", "packs", folder).toFile());
+            FileUtils.deleteDirectory(Paths.get("out", ".cache", "builds", folder).toFile());
+        }
+        Files.deleteIfExists(Paths.get("out", "addons", "workspace_test.mcaddon"));
+    }
+
+    private static <T extends BedificePack<T>> T pack(T pack, ManifestBuilder.ModuleType type, String uuid) {
+        return pack.manifest(manifest -> manifest
+                .header(pack.getPackName(), VERSION, header -> header.uuid(uuid))
+                .module(type, VERSION, uuid + "-module"));
+    }
+
+    private static List<BedificePack<?>> addon() {
+        return List.of(
+                pack(new BedificeResourcePack("workspace_test"), ManifestBuilder.ModuleType.RESOURCES, "uuid-rp"),
+                pack(new BedificeBehvaiourPack("workspace_test"), ManifestBuilder.ModuleType.DATA, "uuid-bp"),
+                pack(new BedificeBehvaiourPack("workspace_test"), ManifestBuilder.ModuleType.DATA, "uuid-bp2"),
+                pack(new BedificeBehvaiourPack("workspace_test_other"), ManifestBuilder.ModuleType.DATA, "uuid-other")
+        );
+    }
+
+    @Test
+    public void packsSharingANameGetTheirOwnFolders() throws IOException {
+        BuildResult result = new BedificeWorkspace().packs(addon()).save(false);
+        assertTrue(result.isSuccessful(), result.failures().toString());
+
+        Path packs = Paths.get("out", "packs");
+        assertTrue(Files.readString(packs.resolve("workspace_test/workspace_test_resources/manifest.json")).contains("uuid-rp"));
+        assertTrue(Files.readString(packs.resolve("workspace_test/workspace_test_behaviours/manifest.json")).contains("uuid-bp\""));
+        assertTrue(Files.readString(packs.resolve("workspace_test/workspace_test_behaviours_2/manifest.json")).contains("uuid-bp2"));
+        //packs with a name of their own keep the usual folder
+        assertTrue(Files.exists(packs.resolve("workspace_test_other/workspace_test_other/manifest.json")));
+    }
+
+    @Test
+    public void addonFoldersAreToldApart() throws IOException {
+        BuildResult result = Bedifice.saveAddon("workspace_test", false, addon().toArray(BedificePack<?>[]::new));
+        assertTrue(result.isSuccessful(), result.failures().toString());
+
+        Set<String> entries = new TreeSet<>();
+        try (ZipFile zip = new ZipFile(Paths.get("out", "addons", "workspace_test.mcaddon").toFile())) {
+            zip.stream().forEach(entry -> entries.add(entry.getName()));
+        }
+        assertEquals(new TreeSet<>(List.of(
+                "workspace_test_resources/manifest.json",
+                "workspace_test_behaviours/manifest.json",
+                "workspace_test_behaviours_2/manifest.json",
+                "workspace_test_other/manifest.json"
+        )), entries);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificeBehvaiourPack;
+import com.github.amusingimpala.bedifice.api.SaveListener;
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeBuilder;
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import com.github.amusingimpala.bedifice.impl.BuildCache;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuildCacheTest {
+
+    private static final Vector3 VERSION = new Vector3(1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    private final boolean hadOut = Files.exists(Paths.get("out"));
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        if (!hadOut) {
+            FileUtils.deleteDirectory(Paths.get("out").toFile());
+            return;
+        }
+        FileUtils.deleteDirectory(Paths.get("out", "packs", "build_cache_test").toFile());
+        FileUtils.deleteDirectory(Paths.get("out", ".cache", "builds", "build_cache_test").toFile());
+    }
+
+    private Path output() throws IOException {
+        Path output = dir.resolve("pack");
+        Files.createDirectories(output);
+        Files.writeString(output.resolve("manifest.json"), "{}");
+        return output;
+    }
+
+    private static SaveResult result(Path output) {
+        return new SaveResult("pack", output, 2, 1, 0, 20, 10);
+    }
+
+    @Test
+    public void sameFingerprintIsFresh() throws IOException {
+        Path output = output();
+        BuildCache cache = new BuildCache(dir.resolve("cache/pack.build"));
+        assertFalse(cache.isFresh("abc", output));
+        cache.store("abc", result(output));
+        assertTrue(cache.isFresh("abc", output));
+        assertFalse(cache.isFresh("def", output));
+
+        SaveResult skipped = cache.skipped("pack", output);
+        assertEquals(0, skipped.filesWritten());
+        assertEquals(3, skipped.filesSkipped());
+        assertEquals(30, skipped.bytesSkipped());
+    }
+
+    @Test
+    public void changedOrDeletedOutputIsStale() throws IOException {
+        Path output = output();
+        BuildCache cache = new BuildCache(dir.resolve("pack.build"));
+        cache.store("abc", result(output));
+
+        Files.setLastModifiedTime(output.resolve("manifest.json"), FileTime.fromMillis(0));
+        assertFalse(cache.isFresh("abc", output));
+
+        cache.store("abc", result(output));
+        Files.delete(output.resolve("manifest.json"));
+        assertFalse(cache.isFresh("abc", output));
+    }
+
+    @Test
+    public void outputWithoutAManifestIsNeverRecorded() throws IOException {
+        Path output = output();
+        Path record = dir.resolve("pack.build");
+        BuildCache cache = new BuildCache(record);
+        cache.store("abc", result(output));
+
+        Files.delete(output.resolve("manifest.json"));
+        cache.store("abc", result(output));
+        assertFalse(Files.exists(record));
+        assertFalse(cache.isFresh("abc", output));
+    }
+
+    @Test
+    public void unfingerprintedSaveDeletesTheRecord() throws IOException {
+        Path output = output();
+        Path record = dir.resolve("pack.build");
+        BuildCache cache = new BuildCache(record);
+        cache.store("abc", result(output));
+        cache.store(null, result(output));
+        assertFalse(Files.exists(record));
+    }
+
+    @Test
+    public void cachedPackSkipsUnchangedSaves() throws IOException {
+        List<SaveResult> skips = new ArrayList<>();
+        BedificeBehvaiourPack pack = new BedificeBehvaiourPack("build_cache_test").cached()
+                .listener(new SaveListener() {
+                    @Override
+                    public void packSkipped(SaveResult result, long nanos) {
+                        skips.add(result);
+                    }
+                })
+                .manifest(manifest -> manifest.header("build_cache_test", VERSION, header -> header.uuid("uuid"))
+                        .module(ManifestBuilder.ModuleType.DATA, VERSION, "uuid-module"))
+                .recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, new Identifier("test", "a"), data -> data
+                        .ingredients(new ItemStack(new Identifier("minecraft", "coal"))).result(new ItemStack(new Identifier("minecraft", "stick"))));
+
+        SaveResult first = pack.save(false);
+        assertEquals(2, first.filesWritten());
+        SaveResult second = pack.save(false);
+        assertEquals(0, second.filesWritten());
+        assertEquals(2, second.filesSkipped());
+        assertEquals(List.of(second), skips);
+
+        //a changed pack is saved again
+        pack.recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, new Identifier("test", "b"), data -> data
+                .ingredients(new ItemStack(new Identifier("minecraft", "stick"))).result(new ItemStack(new Identifier("minecraft", "coal"))));
+        assertEquals(3, pack.save(false).filesWritten());
+
+        //as is a pack whose output was deleted
+        FileUtils.deleteDirectory(Paths.get("out", "packs", "build_cache_test").toFile());
+        assertEquals(3, pack.save(false).filesWritten());
+        assertEquals(1, skips.size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificeBehvaiourPack;
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.api.DependencyReport;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import com.github.amusingimpala.bedifice.impl.DependencyGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DependencyGraphTest {
+
+    private static final Vector3 VERSION = new Vector3(1, 0, 0);
+
+    private final List<BedificePack<?>> packs = new ArrayList<>();
+
+    private void pack(String name, String uuid, String... dependencies) {
+        packs.add(new BedificeBehvaiourPack(name).manifest(manifest -> {
+            manifest.header(name, VERSION, header -> header.uuid(uuid))
+                    .module(ManifestBuilder.ModuleType.DATA, VERSION, uuid + "-module");
+            for (String dependency : dependencies) manifest.dependency(dependency, VERSION);
+        }));
+    }
+
+    @Test
+    public void packsAreLevelledAfterTheirDependencies() {
+        pack("c", "uuid-c", "uuid-b");
+        pack("a", "uuid-a");
+        pack("b", "uuid-b", "uuid-a");
+        pack("d", "uuid-d", "uuid-a");
+        pack("e", "uuid-e", "uuid-b", "uuid-d");
+
+        DependencyGraph graph = new DependencyGraph(packs);
+        assertEquals(List.of(List.of(1), List.of(2, 3), List.of(0, 4)), graph.getLevels());
+        assertArrayEquals(new int[]{2, 3}, graph.getDependencies(4));
+        assertTrue(graph.getReport().isClean());
+        assertEquals("", graph.getReport().format());
+    }
+
+    @Test
+    public void packsWithoutManifestsComeFirst() {
+        packs.add(new BedificeBehvaiourPack("bare"));
+        pack("a", "uuid-a");
+        DependencyGraph graph = new DependencyGraph(packs);
+        assertEquals(List.of(List.of(0, 1)), graph.getLevels());
+        assertTrue(graph.getReport().isClean());
+    }
+
+    @Test
+    public void cyclesAreSavedLast() {
+        pack("a", "uuid-a");
+        pack("b", "uuid-b", "uuid-c");
+        pack("c", "uuid-c", "uuid-b");
+        pack("d", "uuid-d", "uuid-c");
+        pack("self", "uuid-self", "uuid-self");
+
+        DependencyGraph graph = new DependencyGraph(packs);
+        assertEquals(List.of(List.of(0), List.of(1, 2, 3, 4)), graph.getLevels());
+        //d only depends on the cycle, so is not part of it
+        assertEquals(List.of("b", "c", "self"), graph.getReport().cycles());
+        assertFalse(graph.getReport().isClean());
+    }
+
+    @Test
+    public void duplicateUuidsAreReported() {
+        pack("a", "uuid-a");
+        pack("b", "uuid-a");
+        packs.add(new BedificeBehvaiourPack("c").manifest(manifest -> manifest
+                .header("c", VERSION, header -> header.uuid("uuid-c"))
+                .module(ManifestBuilder.ModuleType.DATA, VERSION, "uuid-a-module")));
+
+        DependencyReport report = new DependencyGraph(packs).getReport();
+        assertEquals(Map.of("uuid-a", List.of("a", "b"), "uuid-a-module", List.of("a", "b", "c")), report.duplicates());
+        assertTrue(report.unresolved().isEmpty());
+    }
+
+    @Test
+    public void dependenciesOutsideTheWorkspaceAreUnresolved() {
+        pack("a", "uuid-a", "uuid-elsewhere", "uuid-b-module");
+        pack("b", "uuid-b", "uuid-a");
+
+        DependencyGraph graph = new DependencyGraph(packs);
+        assertEquals(Map.of("a", List.of("uuid-elsewhere", "uuid-b-module")), graph.getReport().unresolved());
+        //unresolved dependencies don't hold a pack back
+        assertEquals(List.of(List.of(0), List.of(1)), graph.getLevels());
+        assertTrue(graph.getReport().format().contains("uuid-elsewhere"));
+    }
+}
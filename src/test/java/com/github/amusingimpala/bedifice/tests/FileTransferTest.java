@@ -0,0 +1,90 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.impl.output.FileTransfer;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class FileTransferTest {
+
+    private static final Path OUTPUT = Paths.get("out", "packs", "file_transfer_test");
+
+    @TempDir
+    Path dir;
+
+    private final boolean hadOut = Files.exists(Paths.get("out"));
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        if (!hadOut) {
+            FileUtils.deleteDirectory(Paths.get("out").toFile());
+            return;
+        }
+        FileUtils.deleteDirectory(OUTPUT.toFile());
+    }
+
+    private static boolean countsLinks(Path path) throws IOException {
+        return Files.getFileStore(path).supportsFileAttributeView("unix");
+    }
+
+    @Test
+    public void storedFilesAreLinkedAndPruned() throws IOException {
+        Path source = dir.resolve("texture.png");
+        Files.writeString(source, "file_transfer_test " + System.nanoTime());
+        Path first = OUTPUT.resolve("a/texture.png");
+        Path second = OUTPUT.resolve("b/texture.png");
+        Files.createDirectories(first.getParent());
+        Files.createDirectories(second.getParent());
+
+        FileTransfer transfer = new FileTransfer(BedificePack.IncludeStrategy.STORE);
+        transfer.transfer(source, first);
+        transfer.transfer(source, second);
+        assertEquals(Files.readString(source), Files.readString(first));
+        //both outputs share the single stored copy
+        assertTrue(Files.isSameFile(first, second));
+        assumeTrue(countsLinks(FileTransfer.STORE));
+        assertEquals(3, ((Number) Files.getAttribute(first, "unix:nlink")).intValue());
+
+        //a blob is kept while any output links it
+        Files.delete(first);
+        FileTransfer.pruneStore();
+        assertEquals(2, ((Number) Files.getAttribute(second, "unix:nlink")).intValue());
+
+        Files.delete(second);
+        assertTrue(FileTransfer.pruneStore() >= 1);
+        //so the next transfer stores it again
+        transfer.transfer(source, first);
+        assertEquals(2, ((Number) Files.getAttribute(first, "unix:nlink")).intValue());
+    }
+
+    @Test
+    public void missingFilesFailWithoutGivingUpOnLinks() throws IOException {
+        FileTransfer transfer = new FileTransfer(BedificePack.IncludeStrategy.LINK);
+        assertThrows(NoSuchFileException.class, () -> transfer.transfer(dir.resolve("missing.png"), dir.resolve("out.png")));
+
+        Path source = dir.resolve("texture.png");
+        Files.writeString(source, "texture");
+        Path target = dir.resolve("linked.png");
+        transfer.transfer(source, target);
+        assertTrue(transfer.isLinked(source, target));
+    }
+
+    @Test
+    public void missingFilesAreNotStored() throws IOException {
+        Files.createDirectories(OUTPUT);
+        FileTransfer transfer = new FileTransfer(BedificePack.IncludeStrategy.STORE);
+        assertThrows(NoSuchFileException.class, () -> transfer.transfer(dir.resolve("missing.png"), OUTPUT.resolve("missing.png")));
+        assertFalse(Files.exists(OUTPUT.resolve("missing.png")));
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.impl.output.FileTransfer;
+import com.github.amusingimpala.bedifice.impl.output.IncrementalOutput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalOutputTest {
+
+    @TempDir
+    Path dir;
+
+    private SaveResult save(Map<String, String> files) throws IOException {
+        IncrementalOutput output = new IncrementalOutput(dir.resolve("pack"), dir.resolve("ledger"), new FileTransfer(BedificePack.IncludeStrategy.COPY));
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            output.write(file.getKey(), out -> out.write(file.getValue().getBytes(StandardCharsets.UTF_8)));
+        }
+        output.close();
+        return output.result("pack");
+    }
+
+    private String read(String path) throws IOException {
+        return Files.readString(dir.resolve("pack").resolve(path));
+    }
+
+    @Test
+    public void firstSaveWritesEverything() throws IOException {
+        SaveResult result = save(Map.of("a.json", "{}", "texts/en_US.lang", "a=b"));
+        assertEquals(2, result.filesWritten());
+        assertEquals(0, result.filesSkipped());
+        assertEquals("a=b", read("texts/en_US.lang"));
+        assertTrue(Files.exists(dir.resolve("ledger")));
+    }
+
+    @Test
+    public void unchangedFilesAreSkipped() throws IOException {
+        save(Map.of("a.json", "{}", "b.json", "[]"));
+        SaveResult result = save(Map.of("a.json", "{}", "b.json", "[]"));
+        assertEquals(0, result.filesWritten());
+        assertEquals(2, result.filesSkipped());
+    }
+
+    @Test
+    public void changedFilesAreRewritten() throws IOException {
+        save(Map.of("a.json", "{\"a\":1}", "b.json", "[]"));
+        SaveResult result = save(Map.of("a.json", "{\"a\":2}", "b.json", "[]"));
+        assertEquals(1, result.filesWritten());
+        assertEquals(1, result.filesSkipped());
+        assertEquals("{\"a\":2}", read("a.json"));
+    }
+
+    @Test
+    public void damagedFilesAreRewritten() throws IOException {
+        save(Map.of("a.json", "{\"a\":1}"));
+        Files.writeString(dir.resolve("pack").resolve("a.json"), "broken");
+        SaveResult result = save(Map.of("a.json", "{\"a\":1}"));
+        assertEquals(1, result.filesWritten());
+        assertEquals("{\"a\":1}", read("a.json"));
+    }
+
+    @Test
+    public void failedSaveKeepsWhatItDidNotSave() throws IOException {
+        save(Map.of("a.json", "{\"a\":1}", "b.json", "[]", "texts/en_US.lang", "a=b"));
+
+        IncrementalOutput output = new IncrementalOutput(dir.resolve("pack"), dir.resolve("ledger"), new FileTransfer(BedificePack.IncludeStrategy.COPY));
+        output.write("a.json", out -> out.write("{\"a\":2}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class, () -> output.write("b.json", out -> {
+            out.write("[1".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }));
+        output.abort();
+
+        assertEquals(0, output.result("pack").filesDeleted());
+        assertEquals("{\"a\":2}", read("a.json"));
+        assertEquals("[]", read("b.json"));
+        assertEquals("a=b", read("texts/en_US.lang"));
+
+        //the ledger knows a.json changed, and still has the files that were not saved
+        SaveResult result = save(Map.of("a.json", "{\"a\":2}", "b.json", "[]", "texts/en_US.lang", "a=b"));
+        assertEquals(0, result.filesWritten());
+        assertEquals(3, result.filesSkipped());
+        //a same size revert is still noticed
+        result = save(Map.of("a.json", "{\"a\":1}", "b.json", "[]", "texts/en_US.lang", "a=b"));
+        assertEquals(1, result.filesWritten());
+    }
+
+    @Test
+    public void removedFilesAreDeleted() throws IOException {
+        save(Map.of("a.json", "{}", "texts/en_US.lang", "a=b"));
+        SaveResult result = save(Map.of("a.json", "{}"));
+        assertEquals(1, result.filesDeleted());
+        assertFalse(Files.exists(dir.resolve("pack").resolve("texts")));
+    }
+
+    @Test
+    public void missingLedgerClearsTheDirectory() throws IOException {
+        Files.createDirectories(dir.resolve("pack"));
+        Files.writeString(dir.resolve("pack").resolve("stale.json"), "{}");
+        save(Map.of("a.json", "{}"));
+        assertFalse(Files.exists(dir.resolve("pack").resolve("stale.json")));
+    }
+
+    @Test
+    public void copiesAreRewrittenOnlyWhenTheSourceChanges() throws IOException {
+        Path source = dir.resolve("source.png");
+        Files.writeString(source, "one");
+        copy(source);
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5000));
+        SaveResult touched = copy(source);
+        assertEquals(0, touched.filesWritten());
+        assertEquals(1, touched.filesSkipped());
+
+        Files.writeString(source, "two");
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 10000));
+        SaveResult changed = copy(source);
+        assertEquals(1, changed.filesWritten());
+        assertEquals("two", read("textures/source.png"));
+    }
+
+    private SaveResult copy(Path source) throws IOException {
+        IncrementalOutput output = new IncrementalOutput(dir.resolve("pack"), dir.resolve("ledger"), new FileTransfer(BedificePack.IncludeStrategy.COPY));
+        output.copy(source, "textures/source.png");
+        output.close();
+        return output.result("pack");
+    }
+}
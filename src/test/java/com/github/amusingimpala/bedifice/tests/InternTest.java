@@ -0,0 +1,61 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InternTest {
+
+    @Test
+    public void identifiersAreCanonical() {
+        Identifier stick = Identifier.of("minecraft", "stick");
+        assertSame(stick, Identifier.of("minecraft:stick"));
+        assertSame(stick, Identifier.of("stick"));
+        assertNotSame(stick, new Identifier("minecraft", "stick"));
+        assertEquals(stick, new Identifier("minecraft", "stick"));
+        assertEquals("minecraft:stick", stick.toString());
+
+        //a colon splits the namespace at the first one
+        assertEquals("b:c", Identifier.of("a:b:c").path());
+        Identifier odd = Identifier.of("a:b", "c");
+        assertEquals("a:b", odd.namespace());
+        assertNotEquals(odd, Identifier.of("a:b:c"));
+    }
+
+    @Test
+    public void itemStacksAreCanonical() {
+        Identifier coal = Identifier.of("minecraft", "coal");
+        assertSame(ItemStack.of(coal), ItemStack.of(Identifier.of("minecraft:coal"), 0, 1));
+        assertNotSame(ItemStack.of(coal, 2), ItemStack.of(coal, 3));
+        assertEquals(ItemStack.of(coal, 2), new ItemStack(coal, 2));
+    }
+
+    @Test
+    public void concurrentLookupsAgree() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            //far more identifiers than any fixed size table holds, so none are lost to collisions
+            List<Callable<List<Identifier>>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    List<Identifier> ids = new ArrayList<>();
+                    for (int i = 0; i < 20000; i++) ids.add(Identifier.of("intern_test", "item_" + i));
+                    return ids;
+                });
+            }
+            List<Future<List<Identifier>>> results = executor.invokeAll(tasks);
+            List<Identifier> first = results.get(0).get();
+            for (Future<List<Identifier>> result : results) {
+                List<Identifier> ids = result.get();
+                for (int i = 0; i < ids.size(); i++) assertSame(first.get(i), ids.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
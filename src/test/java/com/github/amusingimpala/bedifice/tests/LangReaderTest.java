@@ -0,0 +1,87 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.builders.LangBuilder;
+import com.github.amusingimpala.bedifice.impl.LangReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LangReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private List<LangBuilder> read(String fileName, String contents) throws IOException {
+        Path file = dir.resolve(fileName);
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return LangReader.read(file);
+    }
+
+    @Test
+    public void langFilesSkipComments() throws IOException {
+        List<LangBuilder> langs = read("en_US.lang", "## header\n\nitem.a=A\titem.b\t## comment\nnot a translation\n=no key\nitem.c=x=y");
+        assertEquals(1, langs.size());
+        assertEquals("en_US", langs.get(0).getLocale());
+        assertEquals(Map.of("item.a", "A\titem.b", "item.c", "x=y"), langs.get(0).getTranslations());
+    }
+
+    @Test
+    public void crlfLineEndingsAreStripped() throws IOException {
+        LangBuilder lang = read("de_DE.lang", "a=Eins\r\nb=Zwei\r\n").get(0);
+        assertEquals(Map.of("a", "Eins", "b", "Zwei"), lang.getTranslations());
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws IOException {
+        LangBuilder lang = read("en_US.lang", "\uFEFFa=b\n").get(0);
+        assertEquals(Map.of("a", "b"), lang.getTranslations());
+    }
+
+    @Test
+    public void csvHeaderNamesTheLocales() throws IOException {
+        List<LangBuilder> langs = read("skins.csv", "key,en_US,de_DE\r\nskin.a,Frodo,Frodo\r\nskin.b,Legolas,\r\n,orphan,\r\n");
+        assertEquals(2, langs.size());
+        assertEquals("en_US", langs.get(0).getLocale());
+        assertEquals("de_DE", langs.get(1).getLocale());
+        assertEquals(Map.of("skin.a", "Frodo", "skin.b", "Legolas"), langs.get(0).getTranslations());
+        //empty cells and rows without a key are skipped
+        assertEquals(Map.of("skin.a", "Frodo"), langs.get(1).getTranslations());
+    }
+
+    @Test
+    public void csvQuotedFields() throws IOException {
+        List<LangBuilder> langs = read("quotes.csv", "key,en_US\n"
+                + "a,\"Hello, world\"\n"
+                + "b,\"She said \"\"hi\"\"\"\n"
+                + "c,\"two\r\nlines\"\n"
+                + "d,plain \"quotes\"\n");
+        assertEquals(Map.of(
+                "a", "Hello, world",
+                "b", "She said \"hi\"",
+                "c", "two\nlines",
+                "d", "plain \"quotes\""
+        ), langs.get(0).getTranslations());
+    }
+
+    @Test
+    public void tsvDoesNotUnquote() throws IOException {
+        List<LangBuilder> langs = read("table.tsv", "key\ten_US\tfr_FR\na\t\"quoted, kept\"\tUn\n");
+        assertEquals(Map.of("a", "\"quoted, kept\""), langs.get(0).getTranslations());
+        assertEquals(Map.of("a", "Un"), langs.get(1).getTranslations());
+    }
+
+    @Test
+    public void otherFilesAreRejected() {
+        assertThrows(IOException.class, () -> read("en_US.json", "{}"));
+        assertFalse(LangReader.isTranslationFile(dir.resolve("en_US.json")));
+        assertTrue(LangReader.isTranslationFile(dir.resolve("en_US.LANG")));
+    }
+}
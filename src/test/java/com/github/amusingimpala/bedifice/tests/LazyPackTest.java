@@ -0,0 +1,102 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificeBehvaiourPack;
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeBuilder;
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyPackTest {
+
+    private static final Vector3 VERSION = new Vector3(1, 0, 0);
+    private static final ItemStack STICK = new ItemStack(new Identifier("minecraft", "stick"));
+    private static final ItemStack COAL = new ItemStack(new Identifier("minecraft", "coal"));
+
+    private final boolean hadOut = Files.exists(Paths.get("out"));
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        if (!hadOut) {
+            FileUtils.deleteDirectory(Paths.get("out").toFile());
+            return;
+        }
+        FileUtils.deleteDirectory(Paths.get("out", "packs", "lazy_pack_test").toFile());
+        FileUtils.deleteDirectory(Paths.get("out", ".cache", "builds", "lazy_pack_test").toFile());
+    }
+
+    /**
+     * A lazy behaviour pack counting how often what its definitions built is released
+     * */
+    private static class CountingPack extends BedificeBehvaiourPack {
+
+        private int releases = 0;
+        private boolean failing = false;
+
+        private CountingPack() {
+            super("lazy_pack_test");
+            this.lazy().manifest(manifest -> manifest.header("lazy_pack_test", VERSION, header -> header.uuid("uuid"))
+                    .module(ManifestBuilder.ModuleType.DATA, VERSION, "uuid-module"));
+            this.recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, new Identifier("test", "a"), data -> data.ingredients(COAL).result(STICK));
+            this.recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, new Identifier("test", "b"), data -> {
+                if (failing) throw new IllegalStateException("failing definition");
+                data.ingredients(STICK).result(COAL);
+            });
+        }
+
+        @Override
+        protected void release() {
+            super.release();
+            releases++;
+        }
+    }
+
+    @Test
+    public void definitionsRunForEachSaveAndAreReleased() {
+        CountingPack pack = new CountingPack();
+        SaveResult first = pack.save(false);
+        assertEquals(3, first.filesWritten());
+        assertEquals(1, pack.releases);
+        assertTrue(Files.exists(Paths.get("out", "packs", "lazy_pack_test", "lazy_pack_test", "recipes", "test", "b.json")));
+
+        assertEquals(3, pack.save(false).filesWritten());
+        assertEquals(2, pack.releases);
+    }
+
+    @Test
+    public void queriesSeeTheWholePack() {
+        CountingPack pack = new CountingPack();
+        assertEquals(2, pack.getRecipes().size());
+        assertTrue(pack.checkRecipes().isClean());
+        assertEquals(2, pack.releases);
+    }
+
+    @Test
+    public void failedDefinitionsAreReleased() {
+        CountingPack pack = new CountingPack();
+        pack.failing = true;
+        assertThrows(IllegalStateException.class, () -> pack.save(false));
+        //the recipe defined before the failure is released
+        assertEquals(1, pack.releases);
+        assertThrows(IllegalStateException.class, pack::getRecipes);
+
+        //and the next save runs every definition again
+        pack.failing = false;
+        Path saved = Paths.get("out", "packs", "lazy_pack_test", "lazy_pack_test");
+        assertEquals(3, pack.save(false).filesWritten());
+        assertTrue(Files.exists(saved.resolve("recipes/test/a.json")));
+        assertTrue(Files.exists(saved.resolve("recipes/test/b.json")));
+        assertEquals(3, pack.releases);
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.DeltaResult;
+import com.github.amusingimpala.bedifice.api.PackDelta;
+import com.github.amusingimpala.bedifice.impl.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackDeltaTest {
+
+    @TempDir
+    Path dir;
+
+    private Path base;
+    private Path current;
+    private Path target;
+    private Path patch;
+
+    private static void write(Path folder, String path, String contents) throws IOException {
+        Path file = folder.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents);
+    }
+
+    @BeforeEach
+    public void builds() throws IOException {
+        base = dir.resolve("base");
+        current = dir.resolve("current");
+        target = dir.resolve("target");
+        patch = dir.resolve("update.patch.zip");
+
+        write(base, "manifest.json", "{\"version\":1}");
+        write(base, "texts/en_US.lang", "a=b");
+        write(base, "textures/old.png", "old");
+        write(base, "skins.json", "[]");
+
+        write(current, "manifest.json", "{\"version\":2}");
+        write(current, "texts/en_US.lang", "a=b");
+        write(current, "textures/new.png", "new");
+        write(current, "skins.json", "[]");
+
+        write(target, "manifest.json", "{\"version\":1}");
+        write(target, "texts/en_US.lang", "a=b");
+        write(target, "textures/old.png", "old");
+        write(target, "skins.json", "[]");
+    }
+
+    @Test
+    public void patchTurnsTheBaseIntoTheCurrentBuild() throws IOException {
+        DeltaResult created = PackDelta.create(base, current, patch);
+        assertEquals(1, created.filesAdded());
+        assertEquals(1, created.filesChanged());
+        assertEquals(1, created.filesDeleted());
+
+        DeltaResult applied = PackDelta.apply(patch, target);
+        assertEquals(created.filesAdded(), applied.filesAdded());
+        assertEquals(created.filesChanged(), applied.filesChanged());
+        assertEquals(created.filesDeleted(), applied.filesDeleted());
+        assertEquals("{\"version\":2}", Files.readString(target.resolve("manifest.json")));
+        assertEquals("new", Files.readString(target.resolve("textures/new.png")));
+        assertFalse(Files.exists(target.resolve("textures/old.png")));
+        assertEquals("a=b", Files.readString(target.resolve("texts/en_US.lang")));
+    }
+
+    @Test
+    public void identicalBuildsMakeAnEmptyPatch() throws IOException {
+        assertTrue(PackDelta.create(base, target, patch).isEmpty());
+    }
+
+    @Test
+    public void mismatchedFolderIsLeftUntouched() throws IOException {
+        PackDelta.create(base, current, patch);
+        write(target, "manifest.json", "{\"version\":9}");
+
+        IOException e = assertThrows(IOException.class, () -> PackDelta.apply(patch, target));
+        assertTrue(e.getMessage().contains("manifest.json"));
+        //checked before anything is changed
+        assertTrue(Files.exists(target.resolve("textures/old.png")));
+        assertFalse(Files.exists(target.resolve("textures/new.png")));
+    }
+
+    @Test
+    public void conflictingAddedFileIsRejected() throws IOException {
+        PackDelta.create(base, current, patch);
+        write(target, "textures/new.png", "something else");
+        assertThrows(IOException.class, () -> PackDelta.apply(patch, target));
+        assertEquals("{\"version\":1}", Files.readString(target.resolve("manifest.json")));
+    }
+
+    @Test
+    public void reappliedPatchIsRejected() throws IOException {
+        PackDelta.create(base, current, patch);
+        PackDelta.apply(patch, target);
+        assertThrows(IOException.class, () -> PackDelta.apply(patch, target));
+    }
+
+    @Test
+    public void pathsLeavingTheFolderAreRejected() throws IOException {
+        Path evil = dir.resolve("evil.txt");
+        Files.writeString(evil, "payload");
+        String hash = Hashing.hash(evil);
+        Files.delete(evil);
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(patch))) {
+            zip.putNextEntry(new ZipEntry("delta/manifest.tsv"));
+            zip.write(("A\t" + hash + "\t-\t../evil.txt\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("files/../evil.txt"));
+            zip.write("payload".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        IOException e = assertThrows(IOException.class, () -> PackDelta.apply(patch, target));
+        assertTrue(e.getMessage().startsWith("Invalid path"));
+        assertFalse(Files.exists(evil));
+    }
+
+    @Test
+    public void otherArchivesAreRejected() throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(patch))) {
+            zip.putNextEntry(new ZipEntry("manifest.json"));
+            zip.closeEntry();
+        }
+        assertThrows(IOException.class, () -> PackDelta.apply(patch, target));
+    }
+}
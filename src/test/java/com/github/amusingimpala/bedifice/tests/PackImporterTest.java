@@ -0,0 +1,147 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificeBehvaiourPack;
+import com.github.amusingimpala.bedifice.api.BedificePack;
+import com.github.amusingimpala.bedifice.api.BedificeResourcePack;
+import com.github.amusingimpala.bedifice.api.BedificeSkinPack;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.impl.PackImporter;
+import com.google.gson.JsonObject;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackImporterTest {
+
+    private static final String SKINS = "{\"serialize_name\":\"importer_test_skins\",\"localization_name\":\"importer_test_skins\","
+            + "\"skins\":[{\"localization_name\":\"steve\",\"texture\":\"steve.png\",\"type\":\"free\"},"
+            + "{\"localization_name\":\"alex\",\"texture\":\"alex.png\",\"type\":\"paid\",\"geometry\":\"geometry.humanoid.customSlim\"}]}";
+
+    @TempDir
+    Path dir;
+
+    private final boolean hadOut = Files.exists(Paths.get("out"));
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        PackImporter.close();
+        if (!hadOut) {
+            FileUtils.deleteDirectory(Paths.get("out").toFile());
+            return;
+        }
+        FileUtils.deleteDirectory(Paths.get("out", "packs", "importer_test_skins").toFile());
+        FileUtils.deleteDirectory(Paths.get("out", ".cache", "builds", "importer_test_skins").toFile());
+    }
+
+    private static String manifest(String modules) {
+        return "{\n  // hand written\n  \"format_version\": 2,\n"
+                + "  \"header\": {\"name\": \"Test\", \"uuid\": \"header-uuid\", \"version\": \"1.2.0\", \"min_engine_version\": [1, 16, 0]},\n"
+                + "  \"modules\": [" + modules + "],\n"
+                + "  \"dependencies\": [{\"uuid\": \"other-uuid\", \"version\": [1, 0, 0]}, {\"module_name\": \"@minecraft/server\", \"version\": \"1.0.0\"}],\n"
+                + "  \"capabilities\": [\"chemistry\", \"unknown_capability\"]\n}";
+    }
+
+    private static void write(Path folder, String path, String contents) throws IOException {
+        Path file = folder.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents);
+    }
+
+    private static JsonObject build(BedificePack<?> pack) {
+        return pack.getManifest().orElseThrow().build();
+    }
+
+    @Test
+    public void folderResourcePack() throws IOException {
+        Path folder = dir.resolve("my_resources");
+        write(folder, "manifest.json", "\uFEFF" + manifest("{\"type\": \"resources\", \"uuid\": \"module-uuid\", \"version\": [1, 0, 0]}"));
+        write(folder, "textures/blocks/a.png", "png");
+
+        assertTrue(PackImporter.isPack(folder));
+        BedificePack<?> pack = PackImporter.read(folder);
+        assertTrue(pack instanceof BedificeResourcePack);
+        assertEquals("my_resources", pack.getPackName());
+
+        ManifestBuilder manifest = pack.getManifest().orElseThrow();
+        assertEquals("header-uuid", manifest.getUuid().orElseThrow());
+        assertEquals(List.of("module-uuid"), manifest.getModuleUuids());
+        //dependencies on script modules by name are left out
+        assertEquals(List.of("other-uuid"), manifest.getDependencies());
+        JsonObject json = build(pack);
+        assertEquals("[1,2,0]", json.getAsJsonObject("header").get("version").toString());
+        assertEquals("[\"chemistry\"]", json.get("capabilities").toString());
+    }
+
+    @Test
+    public void scriptModulesAreLeftOut() throws IOException {
+        Path folder = dir.resolve("my_behaviours");
+        write(folder, "manifest.json", manifest("{\"type\": \"data\", \"uuid\": \"data-uuid\", \"version\": [1, 0, 0]},"
+                + "{\"type\": \"script\", \"language\": \"javascript\", \"uuid\": \"script-uuid\", \"version\": [1, 0, 0], \"entry\": \"scripts/main.js\"}"));
+
+        BedificePack<?> pack = PackImporter.read(folder);
+        assertTrue(pack instanceof BedificeBehvaiourPack);
+        assertEquals(List.of("data-uuid"), pack.getManifest().orElseThrow().getModuleUuids());
+    }
+
+    @Test
+    public void packsWithoutKnownModulesAreRejected() throws IOException {
+        Path folder = dir.resolve("scripts_only");
+        write(folder, "manifest.json", manifest("{\"type\": \"script\", \"uuid\": \"script-uuid\", \"version\": [1, 0, 0]}"));
+        assertThrows(MissingFormatArgumentException.class, () -> PackImporter.read(folder));
+        assertThrows(MissingFormatArgumentException.class, () -> PackImporter.read(dir));
+    }
+
+    @Test
+    public void mcpackSkinPack() throws IOException {
+        Path archive = dir.resolve("Skins.mcpack");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            //archives are often made with the pack in a folder
+            String[][] entries = {
+                    {"Skins/manifest.json", manifest("{\"type\": \"skin_pack\", \"uuid\": \"module-uuid\", \"version\": [1, 0, 0]}")},
+                    {"Skins/skins.json", SKINS},
+                    {"Skins/texts/en_US.lang", "skinpack.importer_test_skins=Test Skins\r\nskin.importer_test_skins.steve=Steve\r\n"},
+                    {"Skins/steve.png", "steve"},
+                    {"Skins/alex.png", "alex"}
+            };
+            for (String[] entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry[0]));
+                zip.write(entry[1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+
+        assertTrue(PackImporter.isPack(archive));
+        BedificePack<?> pack = PackImporter.read(archive);
+        assertTrue(pack instanceof BedificeSkinPack);
+        //named by its serialize_name, so its translation keys stay the same
+        assertEquals("importer_test_skins", pack.getPackName());
+
+        //included files are read from inside the archive when saved
+        pack.save("imported", false);
+        Path saved = Paths.get("out", "packs", "importer_test_skins", "imported");
+        assertEquals("steve", Files.readString(saved.resolve("steve.png")));
+        assertEquals("alex", Files.readString(saved.resolve("alex.png")));
+        String skins = Files.readString(saved.resolve("skins.json"));
+        assertTrue(skins.contains("geometry.humanoid.customSlim"));
+        assertTrue(skins.contains("\"paid\""));
+        assertTrue(Files.readString(saved.resolve("texts/en_US.lang")).contains("skin.importer_test_skins.steve=Steve"));
+        assertTrue(Files.exists(saved.resolve("manifest.json")));
+
+        //closed archives are opened again when imported again
+        PackImporter.close();
+        assertEquals("importer_test_skins", PackImporter.read(archive).getPackName());
+    }
+}
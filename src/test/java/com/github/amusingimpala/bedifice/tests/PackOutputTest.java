@@ -0,0 +1,147 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.*;
+import com.github.amusingimpala.bedifice.api.builders.ManifestBuilder;
+import com.github.amusingimpala.bedifice.api.util.Vector3;
+import com.github.amusingimpala.bedifice.impl.output.DirectoryOutput;
+import com.github.amusingimpala.bedifice.impl.output.FileTransfer;
+import com.github.amusingimpala.bedifice.impl.output.PackOutput;
+import com.google.gson.Gson;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackOutputTest {
+
+    @TempDir
+    Path dir;
+
+    private final boolean hadOut = Files.exists(Paths.get("out"));
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        if (!hadOut) {
+            FileUtils.deleteDirectory(Paths.get("out").toFile());
+            return;
+        }
+        FileUtils.deleteDirectory(Paths.get("out", "packs", "pack_output_test").toFile());
+        FileUtils.deleteDirectory(Paths.get("out", ".cache", "builds", "pack_output_test").toFile());
+    }
+
+    /**
+     * A pack one of whose files fails to write in the background
+     * */
+    private static class FailingPack extends BedificePack<FailingPack> {
+
+        private FailingPack() {
+            super("pack_output_test");
+            Vector3 version = new Vector3(1, 0, 0);
+            this.manifest(manifest -> manifest.header("pack_output_test", version, header -> header.uuid("uuid"))
+                    .module(ManifestBuilder.ModuleType.DATA, version, "uuid-module"));
+        }
+
+        @Override
+        protected void onSave(PackOutput output, Gson gson) {
+            output.writeAsync("good.json", out -> out.write("{}".getBytes(StandardCharsets.UTF_8)));
+            output.writeAsync("bad.json", out -> {
+                throw new IOException("disk full");
+            });
+        }
+    }
+
+    /**
+     * A pack one of whose files is slow to write in the background
+     * */
+    private static class SlowPack extends BedificePack<SlowPack> {
+
+        private SlowPack() {
+            super("pack_output_test");
+            Vector3 version = new Vector3(1, 0, 0);
+            this.manifest(manifest -> manifest.header("pack_output_test", version, header -> header.uuid("uuid"))
+                    .module(ManifestBuilder.ModuleType.DATA, version, "uuid-module"));
+        }
+
+        @Override
+        protected void onSave(PackOutput output, Gson gson) {
+            output.writeAsync("slow.json", out -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.write("{}".getBytes(StandardCharsets.UTF_8));
+            });
+        }
+    }
+
+    @Test
+    public void backgroundWritesCountTowardsTheirPhase() {
+        Map<SaveListener.Phase, Long> phases = new EnumMap<>(SaveListener.Phase.class);
+        new SlowPack().listener(new SaveListener() {
+            @Override
+            public void phaseSaved(String packName, Phase phase, long nanos, long bytes) {
+                phases.put(phase, nanos);
+            }
+        }).save(false);
+        assertTrue(phases.get(SaveListener.Phase.ON_SAVE) >= 300_000_000L, phases.toString());
+    }
+
+    @Test
+    public void backgroundFailuresAreThrownByAwait() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DirectoryOutput output = new DirectoryOutput(dir.resolve("pack"), new FileTransfer(BedificePack.IncludeStrategy.COPY));
+            output.concurrently(executor, 4);
+            for (int i = 0; i < 20; i++) {
+                int n = i;
+                output.writeAsync(i + ".json", out -> {
+                    if (n % 5 == 0) throw new IOException("failed " + n);
+                    out.write("{}".getBytes(StandardCharsets.UTF_8));
+                });
+            }
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, output::await);
+            assertEquals(3, e.getSuppressed().length);
+            //the other files are still written
+            assertTrue(Files.exists(dir.resolve("pack/19.json")));
+            //and the failure is still reported when waiting again
+            assertThrows(UncheckedIOException.class, output::await);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void synchronousFailuresAreThrownByAwait() throws IOException {
+        DirectoryOutput output = new DirectoryOutput(dir.resolve("pack"), new FileTransfer(BedificePack.IncludeStrategy.COPY));
+        output.copyAsync(dir.resolve("missing.png"), "missing.png");
+        assertThrows(UncheckedIOException.class, output::await);
+    }
+
+    @Test
+    public void failedWritesFailTheSave() {
+        FailingPack pack = new FailingPack().cached();
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> pack.save(false));
+        assertEquals("disk full", e.getCause().getMessage());
+        //so the build cache never records it
+        assertFalse(Files.exists(Paths.get("out", ".cache", "builds", "pack_output_test", "pack_output_test.build")));
+
+        BuildResult result = new BedificeWorkspace().pack(pack).save(false);
+        assertFalse(result.isSuccessful());
+        assertTrue(result.saved().isEmpty());
+        assertTrue(result.failures().get(pack) instanceof UncheckedIOException);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.impl.texture.PngEncoder;
+import com.github.amusingimpala.bedifice.impl.texture.PngOptimizer;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PngEncoderTest {
+
+    private static int[] decode(byte[] png, int width, int height) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(image, "ImageIO could not read the PNG");
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    private static int bitDepth(byte[] png) {
+        return png[24];
+    }
+
+    private static int colorType(byte[] png) {
+        return png[25];
+    }
+
+    private static boolean hasChunk(byte[] png, String type) {
+        return new String(png, StandardCharsets.ISO_8859_1).contains(type);
+    }
+
+    private static int[] image(int width, int height, int... colors) {
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) argb[i] = colors[(i * 7 + i / width) % colors.length];
+        return argb;
+    }
+
+    @Test
+    public void twoColorsUseOneBitPalette() throws IOException {
+        int[] argb = image(13, 5, 0xFF000000, 0xFFFFFFFF);
+        byte[] png = PngEncoder.encode(argb, 13, 5);
+        assertEquals(3, colorType(png));
+        assertEquals(1, bitDepth(png));
+        assertFalse(hasChunk(png, "tRNS"));
+        assertArrayEquals(argb, decode(png, 13, 5));
+    }
+
+    @Test
+    public void sixteenColorsUseFourBitPalette() throws IOException {
+        int[] colors = new int[16];
+        for (int i = 0; i < colors.length; i++) colors[i] = 0xFF000000 | i * 0x0F0A05;
+        int[] argb = image(9, 9, colors);
+        byte[] png = PngEncoder.encode(argb, 9, 9, true);
+        assertEquals(3, colorType(png));
+        assertEquals(4, bitDepth(png));
+        assertArrayEquals(argb, decode(png, 9, 9));
+    }
+
+    @Test
+    public void translucentPaletteKeepsAlpha() throws IOException {
+        int[] argb = image(16, 16, 0x00000000, 0x80FF0000, 0xFF00FF00, 0x400000FF, 0xFFFFFFFF);
+        byte[] png = PngEncoder.encode(argb, 16, 16);
+        assertEquals(3, colorType(png));
+        assertTrue(hasChunk(png, "tRNS"));
+        assertArrayEquals(argb, decode(png, 16, 16));
+    }
+
+    @Test
+    public void manyOpaqueColorsUseTrueColor() throws IOException {
+        Random random = new Random(42);
+        int[] argb = new int[32 * 32];
+        for (int i = 0; i < argb.length; i++) argb[i] = 0xFF000000 | random.nextInt(0x1000000);
+        byte[] png = PngEncoder.encode(argb, 32, 32, true);
+        assertEquals(2, colorType(png));
+        assertEquals(8, bitDepth(png));
+        assertArrayEquals(argb, decode(png, 32, 32));
+    }
+
+    @Test
+    public void manyTranslucentColorsUseTrueColorWithAlpha() throws IOException {
+        int[] argb = new int[20 * 20];
+        for (int i = 0; i < argb.length; i++) argb[i] = (i % 255 + 1) << 24 | i * 0x010203;
+        byte[] png = PngEncoder.encode(argb, 20, 20);
+        assertEquals(6, colorType(png));
+        //ImageIO returns unpremultiplied ARGB, so translucent pixels come back exactly
+        assertArrayEquals(argb, decode(png, 20, 20));
+    }
+
+    @Test
+    public void wrongBufferSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PngEncoder.encode(new int[10], 4, 4));
+    }
+
+    @Test
+    public void optimizerKeepsPixels() throws IOException {
+        BufferedImage image = new BufferedImage(24, 24, BufferedImage.TYPE_INT_ARGB);
+        int[] argb = image(24, 24, 0x00000000, 0xFF336699, 0x80FFFFFF);
+        image.setRGB(0, 0, 24, 24, argb, 0, 24);
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", original);
+
+        byte[] optimized = PngOptimizer.optimize(original.toByteArray());
+        assertTrue(optimized.length <= original.size());
+        assertArrayEquals(argb, decode(optimized, 24, 24));
+    }
+
+    @Test
+    public void optimizerRejectsOtherFiles() {
+        assertThrows(IOException.class, () -> PngOptimizer.optimize(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}));
+    }
+}
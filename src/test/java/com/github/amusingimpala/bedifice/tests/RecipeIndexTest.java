@@ -0,0 +1,111 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.BedificeBehvaiourPack;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeBuilder;
+import com.github.amusingimpala.bedifice.api.builders.behaviour.RecipeReport;
+import com.github.amusingimpala.bedifice.api.util.Identifier;
+import com.github.amusingimpala.bedifice.api.util.ItemStack;
+import com.github.amusingimpala.bedifice.api.util.Processor;
+import com.github.amusingimpala.bedifice.impl.RecipeIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecipeIndexTest {
+
+    private static final ItemStack PLANKS = new ItemStack(new Identifier("minecraft", "planks"));
+    private static final ItemStack STICK = new ItemStack(new Identifier("minecraft", "stick"));
+    private static final ItemStack COAL = new ItemStack(new Identifier("minecraft", "coal"));
+
+    private final List<RecipeBuilder> recipes = new ArrayList<>();
+
+    private void recipe(RecipeBuilder.RecipeType type, String path, Processor<RecipeBuilder.RecipeDataBuilder> proc) {
+        recipes.add(new RecipeBuilder().data(type, new Identifier("test", path), data -> proc.process(data)
+                .result(new ItemStack(new Identifier("test", path)))));
+    }
+
+    private void shaped(String path, String tag, String... pattern) {
+        recipe(RecipeBuilder.RecipeType.RECIPE_SHAPED, path, data -> data.tags(tag).pattern(pattern).key('#', PLANKS).key('|', STICK));
+    }
+
+    private static List<Identifier> ids(String... paths) {
+        List<Identifier> ids = new ArrayList<>();
+        for (String path : paths) ids.add(new Identifier("test", path));
+        return ids;
+    }
+
+    @Test
+    public void distinctRecipesAreClean() {
+        shaped("a", "crafting_table", "##", "##");
+        shaped("b", "crafting_table", "#|", "#|");
+        recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, "c", data -> data.tags("crafting_table").ingredients(PLANKS, COAL));
+        assertTrue(RecipeIndex.index(recipes).isClean());
+    }
+
+    @Test
+    public void shiftedAndMirroredPatternsConflict() {
+        shaped("a", "crafting_table", "#| ", "#  ");
+        shaped("b", "crafting_table", "   ", " |#", "  #");
+        shaped("c", "crafting_table", "|#", "# ");
+        RecipeReport report = RecipeIndex.index(recipes);
+        assertEquals(1, report.conflicts().size());
+        assertEquals(ids("a", "b"), report.conflicts().get(0).recipes());
+        assertEquals("crafting_table", report.conflicts().get(0).tag());
+    }
+
+    @Test
+    public void differentTagsDoNotConflict() {
+        shaped("a", "crafting_table", "##");
+        shaped("b", "stonecutter", "##");
+        assertTrue(RecipeIndex.index(recipes).conflicts().isEmpty());
+    }
+
+    @Test
+    public void shapelessConflictsWithShapedOfTheSameIngredients() {
+        shaped("a", "crafting_table", "#|");
+        recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, "b", data -> data.tags("crafting_table").ingredients(STICK, PLANKS));
+        recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, "c", data -> data.tags("crafting_table").ingredients(PLANKS, STICK));
+        recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, "d", data -> data.tags("crafting_table").ingredients(PLANKS, new ItemStack(STICK.id(), 2)));
+
+        RecipeReport report = RecipeIndex.index(recipes);
+        assertEquals(1, report.conflicts().size());
+        assertEquals(ids("a", "b", "c"), report.conflicts().get(0).recipes());
+    }
+
+    @Test
+    public void furnaceRecipesConflictOnTheirInput() {
+        recipe(RecipeBuilder.RecipeType.RECIPE_FURNACE, "a", data -> data.tags("furnace").input(COAL).output(STICK));
+        recipe(RecipeBuilder.RecipeType.RECIPE_FURNACE, "b", data -> data.tags("furnace", "smoker").input(COAL).output(PLANKS));
+        recipe(RecipeBuilder.RecipeType.RECIPE_FURNACE, "c", data -> data.tags("smoker").input(PLANKS).output(COAL));
+
+        RecipeReport report = RecipeIndex.index(recipes);
+        assertEquals(1, report.conflicts().size());
+        assertEquals("furnace", report.conflicts().get(0).tag());
+        assertEquals(ids("a", "b"), report.conflicts().get(0).recipes());
+    }
+
+    @Test
+    public void duplicateIdentifiersAreCountedNotConflicted() {
+        shaped("a", "crafting_table", "##");
+        shaped("a", "crafting_table", "##");
+        shaped("a", "crafting_table", "#|");
+
+        RecipeReport report = RecipeIndex.index(recipes);
+        assertEquals(Map.of(new Identifier("test", "a"), 3), report.duplicates());
+        assertTrue(report.conflicts().isEmpty());
+        assertFalse(report.format().isEmpty());
+    }
+
+    @Test
+    public void packRejectsDuplicateIdentifiers() {
+        BedificeBehvaiourPack pack = new BedificeBehvaiourPack("recipes")
+                .recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, new Identifier("test", "a"), data -> data.ingredients(COAL).result(STICK));
+        assertThrows(IllegalArgumentException.class, () -> pack
+                .recipe(RecipeBuilder.RecipeType.RECIPE_SHAPELESS, new Identifier("test", "a"), data -> data.ingredients(PLANKS).result(STICK)));
+        assertEquals(1, pack.getRecipes().size());
+    }
+}
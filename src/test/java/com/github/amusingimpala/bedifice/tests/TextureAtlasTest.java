@@ -0,0 +1,93 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.util.Texture;
+import com.github.amusingimpala.bedifice.impl.texture.TextureAtlas;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextureAtlasTest {
+
+    private static Texture texture(int width, int height, int color) {
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, color);
+        return new Texture(width, height, pixels);
+    }
+
+    private static int pixel(Texture page, int x, int y) {
+        return page.getPixels()[y * page.getWidth() + x];
+    }
+
+    @Test
+    public void texturesArePackedOntoShelvesTallestFirst() {
+        Map<String, Texture> textures = new TreeMap<>(Map.of(
+                "d", texture(4, 4, 4),
+                "c", texture(8, 4, 3),
+                "b", texture(8, 8, 2),
+                "a", texture(8, 8, 1)
+        ));
+        TextureAtlas atlas = TextureAtlas.stitch("textures/atlas/blocks", 16, textures);
+
+        Map<String, TextureAtlas.Slot> slots = atlas.getSlots();
+        assertEquals(new TextureAtlas.Slot(0, 0, 0, 8, 8), slots.get("a"));
+        assertEquals(new TextureAtlas.Slot(0, 8, 0, 8, 8), slots.get("b"));
+        //the first shelf is full, so the next starts below its tallest texture
+        assertEquals(new TextureAtlas.Slot(0, 0, 8, 8, 4), slots.get("c"));
+        assertEquals(new TextureAtlas.Slot(0, 8, 8, 4, 4), slots.get("d"));
+
+        List<Texture> pages = atlas.getPages();
+        assertEquals(1, pages.size());
+        Texture page = pages.get(0);
+        assertEquals(16, page.getWidth());
+        //12 rows used, rounded up to a power of two
+        assertEquals(16, page.getHeight());
+        assertEquals(1, pixel(page, 7, 7));
+        assertEquals(2, pixel(page, 8, 0));
+        assertEquals(3, pixel(page, 7, 11));
+        assertEquals(4, pixel(page, 11, 11));
+        assertEquals(0, pixel(page, 12, 8));
+        assertEquals(0, pixel(page, 0, 12));
+    }
+
+    @Test
+    public void fullPagesStartANewPage() {
+        Map<String, Texture> textures = new TreeMap<>();
+        for (int i = 0; i < 5; i++) textures.put("t" + i, texture(8, 8, i + 1));
+        TextureAtlas atlas = TextureAtlas.stitch("textures/atlas/blocks", 16, textures);
+
+        List<Texture> pages = atlas.getPages();
+        assertEquals(2, pages.size());
+        assertEquals(16, pages.get(0).getHeight());
+        //the last page is only as tall as it needs to be
+        assertEquals(8, pages.get(1).getHeight());
+        assertEquals(new TextureAtlas.Slot(1, 0, 0, 8, 8), atlas.getSlots().get("t4"));
+        assertEquals(5, pixel(pages.get(1), 0, 0));
+
+        JsonObject map = atlas.build();
+        assertEquals("[\"textures/atlas/blocks_0\",\"textures/atlas/blocks_1\"]", map.get("pages").toString());
+        assertEquals("{\"page\":1,\"uv\":[0,0],\"uv_size\":[8,8]}", map.getAsJsonObject("textures").get("t4").toString());
+    }
+
+    @Test
+    public void pageHeightsNeverExceedThePageSize() {
+        //12 rows round up to 16, but the page is only 12 tall
+        TextureAtlas atlas = TextureAtlas.stitch("atlas", 12, Map.of("a", texture(8, 12, 1)));
+        assertEquals(12, atlas.getPages().get(0).getHeight());
+
+        atlas = TextureAtlas.stitch("atlas", 24, Map.of("a", texture(8, 12, 1)));
+        assertEquals(16, atlas.getPages().get(0).getHeight());
+    }
+
+    @Test
+    public void emptyAndOversizedAtlases() {
+        assertTrue(TextureAtlas.stitch("atlas", 16, Map.of()).getPages().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> TextureAtlas.stitch("atlas", 16, Map.of("a", texture(17, 1, 1))));
+        assertThrows(IllegalArgumentException.class, () -> TextureAtlas.stitch("atlas", 0, Map.of()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.amusingimpala.bedifice.tests;
+
+import com.github.amusingimpala.bedifice.api.SaveResult;
+import com.github.amusingimpala.bedifice.impl.output.ZipOutput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipOutputTest {
+
+    @TempDir
+    Path dir;
+
+    private static String contents(int i) {
+        return ("{\"entry\":" + i + "}").repeat(i % 50 + 1);
+    }
+
+    private static void assertEntry(ZipFile zip, String name, int method, String contents) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        assertNotNull(entry, name);
+        assertEquals(method, entry.getMethod(), name);
+        assertEquals(contents, new String(zip.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8), name);
+    }
+
+    @Test
+    public void entriesRoundTrip() throws IOException {
+        Path png = dir.resolve("source.png");
+        Path lang = dir.resolve("source.lang");
+        Files.writeString(png, "not really a png");
+        Files.writeString(lang, "a=b");
+
+        Path archive = dir.resolve("pack.mcpack");
+        ZipOutput output = new ZipOutput(archive);
+        output.write("manifest.json", out -> out.write("{}".getBytes(StandardCharsets.UTF_8)));
+        output.write("textures/generated.PNG", out -> out.write("pixels".getBytes(StandardCharsets.UTF_8)));
+        output.copy(png, "textures/copied.png");
+        output.copy(lang, "texts/en_US.lang");
+        output.close();
+
+        SaveResult result = output.result("pack");
+        assertEquals(4, result.filesWritten());
+        assertEquals(2 + 6 + 16 + 3, result.bytesWritten());
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(4, zip.size());
+            assertEntry(zip, "manifest.json", ZipEntry.DEFLATED, "{}");
+            assertEntry(zip, "textures/generated.PNG", ZipEntry.STORED, "pixels");
+            assertEntry(zip, "textures/copied.png", ZipEntry.STORED, "not really a png");
+            assertEntry(zip, "texts/en_US.lang", ZipEntry.DEFLATED, "a=b");
+        }
+    }
+
+    @Test
+    public void concurrentWritesIntoASharedArchive() throws IOException {
+        Path archive = dir.resolve("addon.mcaddon");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (String folder : new String[]{"resources", "behaviours"}) {
+                ZipOutput output = new ZipOutput(archive, zip, folder);
+                output.concurrently(executor, 16);
+                for (int i = 0; i < 200; i++) {
+                    String contents = contents(i);
+                    output.writeAsync(i + (i % 2 == 0 ? ".json" : ".png"), out -> out.write(contents.getBytes(StandardCharsets.UTF_8)));
+                }
+                output.await();
+                output.close();
+                assertEquals(200, output.result(folder).filesWritten());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(400, zip.size());
+            for (String folder : new String[]{"resources", "behaviours"}) {
+                for (int i = 0; i < 200; i++) {
+                    boolean stored = i % 2 == 1;
+                    assertEntry(zip, folder + "/" + i + (stored ? ".png" : ".json"), stored ? ZipEntry.STORED : ZipEntry.DEFLATED, contents(i));
+                }
+            }
+        }
+    }
+}